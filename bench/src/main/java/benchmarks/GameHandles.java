@@ -0,0 +1,89 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Method handles onto the game classes. The game lives in the default package, which JMH benchmarks
+ * can't be in and named packages can't import from, so the benchmarks reach it through these.
+ *
+ * Every handle has the receiver type erased to Object so call sites can use invokeExact. Held in static
+ * final fields they are constants to the JIT and get inlined, so they add no cost to the measurement.
+ */
+final class GameHandles {
+
+    private GameHandles() {
+    }
+
+    /**
+     * @param className Name of a game class.
+     * @param paramTypes Parameter types of the constructor.
+     * @return Handle on the constructor, returning Object.
+     */
+    static MethodHandle constructor(String className, Class<?>... paramTypes) {
+        try {
+            Class<?> c = Class.forName(className);
+            return lookup(c).findConstructor(c, MethodType.methodType(void.class, paramTypes))
+                    .asType(MethodType.methodType(Object.class, paramTypes));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can't find constructor of " + className, e);
+        }
+    }
+
+    /**
+     * @param className Name of a game class.
+     * @param name Name of an instance method, may be private.
+     * @param returnType Return type of the method.
+     * @param paramTypes Parameter types of the method.
+     * @return Handle on the method with the receiver, and any object return type, typed as Object.
+     */
+    static MethodHandle method(String className, String name, Class<?> returnType, Class<?>... paramTypes) {
+        try {
+            Class<?> c = Class.forName(className);
+            MethodType type = MethodType.methodType(returnType, paramTypes);
+            MethodType erased = type.insertParameterTypes(0, Object.class);
+            if (!returnType.isPrimitive()) erased = erased.changeReturnType(Object.class);
+            return lookup(c).findVirtual(c, name, type).asType(erased);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can't find " + className + "." + name, e);
+        }
+    }
+
+    /**
+     * @param className Name of a game class.
+     * @param name Name of a static method, may be private.
+     * @param returnType Return type of the method.
+     * @param paramTypes Parameter types of the method.
+     * @return Handle on the method with any object return type typed as Object.
+     */
+    static MethodHandle staticMethod(String className, String name, Class<?> returnType, Class<?>... paramTypes) {
+        try {
+            Class<?> c = Class.forName(className);
+            MethodType type = MethodType.methodType(returnType, paramTypes);
+            MethodType erased = returnType.isPrimitive() ? type : type.changeReturnType(Object.class);
+            return lookup(c).findStatic(c, name, type).asType(erased);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can't find " + className + "." + name, e);
+        }
+    }
+
+    /**
+     * @param className Name of a game class.
+     * @return The class, for use as a parameter or return type.
+     */
+    static Class<?> gameClass(String className) {
+        try {
+            return Class.forName(className);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Can't find " + className, e);
+        }
+    }
+
+    /*
+    Lookup with private access to the given class.
+     */
+    private static MethodHandles.Lookup lookup(Class<?> c) throws IllegalAccessException {
+        return MethodHandles.privateLookupIn(c, MethodHandles.lookup());
+    }
+}
@@ -0,0 +1,149 @@
+package benchmarks;
+
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Per-frame HUD work in TraceGame: formatting the two time labels and animating the RGB colours.
+ *
+ * stringFormatPerFrame formats both labels with TraceGame.millisToSeconds, as they were before HudLabel
+ * (it still formats the results), and is kept as a baseline for fixedPointTextPerFrame, which does what
+ * HudLabel does. Loading TraceGame creates its fonts, which starts JavaFX's graphics pipeline but needs
+ * no running toolkit or window. paletteLookup finds one colour with Palette, as a baseline for the
+ * colorAnimator benchmarks, which tick the ball and scene (2 targets) or ANIMATED_TARGETS targets one
+ * frame on.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HudBenchmarks {
+    private static final MethodHandle MILLIS_TO_SECONDS = GameHandles.staticMethod("TraceGame", "millisToSeconds",
+            String.class, double.class);
+    private static final String TEXT = "FixedPointText";
+    private static final MethodHandle NEW_TEXT = GameHandles.constructor(TEXT, int.class);
+    private static final MethodHandle CLEAR = GameHandles.method(TEXT, "clear", GameHandles.gameClass(TEXT));
+    private static final MethodHandle APPEND_FIXED = GameHandles.method(TEXT, "appendFixed", GameHandles.gameClass(TEXT), long.class, int.class);
+    private static final MethodHandle CHAR_AT = GameHandles.method(TEXT, "charAt", char.class, int.class);
+    private static final MethodHandle LENGTH = GameHandles.method(TEXT, "length", int.class);
+    private static final long FRAME_NANOS = 16_666_667;
+    private static final long NANOS_PER_HUNDREDTH = 10_000_000;
+    private static final int ANIMATED_TARGETS = 100;
+    private static final MethodHandle NEW_ANIMATOR = GameHandles.constructor("ColorAnimator");
+    private static final MethodHandle ADD_TARGET = GameHandles.method("ColorAnimator", "add", void.class,
+            GameHandles.gameClass("Palette"), long.class, Consumer.class)
+            .asType(MethodType.methodType(void.class, Object.class, Object.class, long.class, Consumer.class));
+    private static final MethodHandle TICK = GameHandles.method("ColorAnimator", "tick", void.class, long.class);
+    private static final MethodHandle STEPPED_RGB = GameHandles.staticMethod("Palette", "steppedRGB", GameHandles.gameClass("Palette"));
+    private static final MethodHandle HUE_CYCLE = GameHandles.staticMethod("Palette", "hueCycle", GameHandles.gameClass("Palette"));
+    private static final MethodHandle INDEX_AT = GameHandles.method("Palette", "indexAt", int.class, long.class);
+    private static final MethodHandle GET_COLOR = GameHandles.method("Palette", "getColor", Color.class, int.class);
+
+    private double timeLeftMillis;
+    private double timeInBallMillis;
+    private long timeLeftNanos;
+    private long timeInBallNanos;
+    private Object timeLeftText;
+    private Object timeInBallText;
+    private final char[] shownTimeLeft = new char[16];
+    private final char[] shownTimeInBall = new char[16];
+    private Paint fill = Color.WHITE;
+    private Paint sceneFill = Color.WHITE;
+    private Object stepped;
+    private Object twoTargets;
+    private Object manyTargets;
+    private long now;
+
+    @Setup
+    public void setup() throws Throwable {
+        timeLeftMillis = 30000;
+        timeInBallMillis = 0;
+        timeLeftNanos = 30_000_000_000L;
+        timeInBallNanos = 0;
+        timeLeftText = NEW_TEXT.invokeExact(24);
+        timeInBallText = NEW_TEXT.invokeExact(24);
+
+        // The ball and scene, as TraceGame animates them
+        stepped = (Object) STEPPED_RGB.invokeExact();
+        twoTargets = NEW_ANIMATOR.invokeExact();
+        ADD_TARGET.invokeExact(twoTargets, stepped, 0L, (Consumer<Paint>) color -> fill = color);
+        ADD_TARGET.invokeExact(twoTargets, stepped, -250_000_000L, (Consumer<Paint>) color -> sceneFill = color);
+
+        // Many smoothly cycling targets spread round the colour wheel
+        Object hues = (Object) HUE_CYCLE.invokeExact();
+        manyTargets = NEW_ANIMATOR.invokeExact();
+        for (int i = 0; i < ANIMATED_TARGETS; i++) {
+            ADD_TARGET.invokeExact(manyTargets, hues, i * 30_000_000L, (Consumer<Paint>) color -> fill = color);
+        }
+    }
+
+    /*
+    Both labels are formatted every frame, as TraceGame's game loop did before HudLabel.
+     */
+    @Benchmark
+    public int stringFormatPerFrame() throws Throwable {
+        timeLeftMillis -= 16.667;
+        timeInBallMillis += 16.667;
+        String timeLeft = "Time left: " + (Object) MILLIS_TO_SECONDS.invokeExact(timeLeftMillis);
+        String timeInBall = "Time in ball: " + (Object) MILLIS_TO_SECONDS.invokeExact(timeInBallMillis);
+        return timeLeft.length() + timeInBall.length();
+    }
+
+    /*
+    Both labels are formatted every frame and diffed against what is shown, as HudLabel does.
+     */
+    @Benchmark
+    public int fixedPointTextPerFrame() throws Throwable {
+        timeLeftNanos -= FRAME_NANOS;
+        timeInBallNanos += FRAME_NANOS;
+        return update(timeLeftText, shownTimeLeft, timeLeftNanos / NANOS_PER_HUNDREDTH)
+                + update(timeInBallText, shownTimeInBall, timeInBallNanos / NANOS_PER_HUNDREDTH);
+    }
+
+    @Benchmark
+    public Paint paletteLookup() throws Throwable {
+        now += FRAME_NANOS;
+        fill = (Paint) (Object) GET_COLOR.invokeExact(stepped, (int) INDEX_AT.invokeExact(stepped, now));
+        return fill;
+    }
+
+    @Benchmark
+    public Paint colorAnimatorBallAndScene() throws Throwable {
+        now += FRAME_NANOS;
+        TICK.invokeExact(twoTargets, now);
+        return fill;
+    }
+
+    @Benchmark
+    public Paint colorAnimatorManyTargets() throws Throwable {
+        now += FRAME_NANOS;
+        TICK.invokeExact(manyTargets, now);
+        return fill;
+    }
+
+    /*
+    Formats the value and returns how many characters changed.
+     */
+    private int update(Object text, char[] shown, long hundredths) throws Throwable {
+        Object cleared = (Object) CLEAR.invokeExact(text);
+        Object appended = (Object) APPEND_FIXED.invokeExact(cleared, hundredths, 2);
+        int length = (int) LENGTH.invokeExact(appended);
+        int changed = 0;
+        for (int i = 0; i < length && i < shown.length; i++) {
+            char c = (char) CHAR_AT.invokeExact(text, i);
+            if (c != shown[i]) {
+                shown[i] = c;
+                changed++;
+            }
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,65 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the score statistics from QuantileSketch: recording one trial, which must be O(1), and reading
+ * a percentile and merging two sketches, which are bounded by the number of buckets however many values
+ * were recorded.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QuantileSketchBenchmark {
+    private static final String SKETCH = "QuantileSketch";
+    private static final MethodHandle NEW_SKETCH = GameHandles.constructor(SKETCH);
+    private static final MethodHandle RECORD = GameHandles.method(SKETCH, "record", void.class, long.class);
+    private static final MethodHandle GET_QUANTILE = GameHandles.method(SKETCH, "getQuantile", long.class, double.class);
+    private static final MethodHandle MERGE = GameHandles.method(SKETCH, "merge", void.class, GameHandles.gameClass(SKETCH))
+            .asType(MethodType.methodType(void.class, Object.class, Object.class));
+    private static final int VALUES = 1024;     // Power of two, cycled through by record
+
+    private Object sketch;
+    private Object other;
+    private final long[] values = new long[VALUES];
+    private int value = 0;
+
+    @Setup
+    public void setup() throws Throwable {
+        sketch = NEW_SKETCH.invokeExact();
+        other = NEW_SKETCH.invokeExact();
+        // Reaction-time-like values, 150 to 650 ms in nanoseconds
+        Random random = new Random(11);
+        for (int i = 0; i < VALUES; i++) {
+            values[i] = 150_000_000L + (long) (random.nextDouble() * 500_000_000L);
+        }
+        for (int i = 0; i < 100_000; i++) {
+            RECORD.invokeExact(sketch, values[i & (VALUES - 1)]);
+            RECORD.invokeExact(other, values[(i * 7) & (VALUES - 1)]);
+        }
+    }
+
+    @Benchmark
+    public void record() throws Throwable {
+        value = (value + 1) & (VALUES - 1);
+        RECORD.invokeExact(sketch, values[value]);
+    }
+
+    @Benchmark
+    public long p99() throws Throwable {
+        return (long) GET_QUANTILE.invokeExact(sketch, 0.99);
+    }
+
+    @Benchmark
+    public void merge() throws Throwable {
+        MERGE.invokeExact(sketch, other);
+    }
+}
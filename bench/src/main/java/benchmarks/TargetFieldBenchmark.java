@@ -0,0 +1,63 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-step cost of the decoy targets in the multi-target trace game, from TargetField, as the number of
+ * targets grows. A step must stay well inside the 16 ms frame budget, and a hit test should barely grow
+ * with the number of targets because it only looks at the grid cells around the point.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TargetFieldBenchmark {
+    private static final String FIELD = "TargetField";
+    private static final MethodHandle NEW_FIELD = GameHandles.constructor(FIELD, int.class, long.class);
+    private static final MethodHandle SET_BOUNDS = GameHandles.method(FIELD, "setBounds", void.class, double.class, double.class, double.class, double.class);
+    private static final MethodHandle SET_TARGET_SETTINGS = GameHandles.method(FIELD, "setTargetSettings", void.class, double.class, double.class);
+    private static final MethodHandle SET_COUNT = GameHandles.method(FIELD, "setCount", void.class, int.class);
+    private static final MethodHandle STEP = GameHandles.method(FIELD, "step", void.class, long.class);
+    private static final MethodHandle HIT_TEST = GameHandles.method(FIELD, "hitTest", int.class, double.class, double.class);
+    private static final long STEP_NANOS = 1_000_000_000L / 60;
+    private static final int POINTS = 1024;     // Power of two, cycled through by hitTest
+
+    @Param({"100", "1000", "10000"})
+    public int targets;
+
+    private Object field;
+    private final double[] pointX = new double[POINTS];
+    private final double[] pointY = new double[POINTS];
+    private int point = 0;
+
+    @Setup
+    public void setup() throws Throwable {
+        field = NEW_FIELD.invokeExact(targets, 42L);
+        // Full HD play area with small targets, so the denser settings are still playable
+        SET_BOUNDS.invokeExact(field, 0.0, 0.0, 1920.0, 1080.0);
+        SET_TARGET_SETTINGS.invokeExact(field, 10.0, 3.0);
+        SET_COUNT.invokeExact(field, targets);
+        Random random = new Random(7);
+        for (int i = 0; i < POINTS; i++) {
+            pointX[i] = random.nextDouble() * 1920;
+            pointY[i] = random.nextDouble() * 1080;
+        }
+    }
+
+    @Benchmark
+    public void step() throws Throwable {
+        STEP.invokeExact(field, STEP_NANOS);
+    }
+
+    @Benchmark
+    public int hitTest() throws Throwable {
+        point = (point + 1) & (POINTS - 1);
+        return (int) HIT_TEST.invokeExact(field, pointX[point], pointY[point]);
+    }
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame timer updates: the old SimpleTimer against GameClock reading the pulse timestamp.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimerBenchmarks {
+    private static final MethodHandle NEW_SIMPLE_TIMER = GameHandles.constructor("SimpleTimer");
+    private static final MethodHandle SIMPLE_START = GameHandles.method("SimpleTimer", "start", void.class);
+    private static final MethodHandle SIMPLE_UPDATE = GameHandles.method("SimpleTimer", "updateValue", void.class);
+    private static final MethodHandle SIMPLE_TOTAL = GameHandles.method("SimpleTimer", "getTotalTime", double.class);
+    private static final MethodHandle NEW_GAME_CLOCK = GameHandles.constructor("GameClock");
+    private static final MethodHandle CLOCK_START = GameHandles.method("GameClock", "start", void.class);
+    private static final MethodHandle CLOCK_ELAPSED = GameHandles.method("GameClock", "getElapsedMillis", double.class, long.class);
+
+    private Object simpleTimer;
+    private Object gameClock;
+    private long now;
+
+    @Setup
+    public void setup() throws Throwable {
+        simpleTimer = NEW_SIMPLE_TIMER.invokeExact();
+        SIMPLE_START.invokeExact(simpleTimer);
+        gameClock = NEW_GAME_CLOCK.invokeExact();
+        CLOCK_START.invokeExact(gameClock);
+        now = System.nanoTime();
+    }
+
+    @Benchmark
+    public double simpleTimerUpdateValue() throws Throwable {
+        SIMPLE_UPDATE.invokeExact(simpleTimer);
+        return (double) SIMPLE_TOTAL.invokeExact(simpleTimer);
+    }
+
+    @Benchmark
+    public double gameClockElapsed() throws Throwable {
+        // The pulse timestamp is handed to the game loop, so no clock read is needed here
+        now += 16_666_667;
+        return (double) CLOCK_ELAPSED.invokeExact(gameClock, now);
+    }
+}
@@ -0,0 +1,113 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-step work of the trace game, from TraceSimulation: a whole step and each of the pieces run
+ * inside it, for both path styles, and a step with the lagged pursuit agent moving the mouse. Each
+ * iteration restarts the run from the centre of the play area, and the ball is moved with the same
+ * out of bounds check as a step, so it stays in the play area and bounces off the walls as in a game.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TraceSimulationBenchmark {
+    private static final String SIMULATION = "TraceSimulation";
+    private static final MethodHandle NEW_SIMULATION = GameHandles.constructor(SIMULATION);
+    private static final MethodHandle SET_SETTINGS = GameHandles.method(SIMULATION, "setSettings", void.class, int.class, int.class, long.class);
+    private static final MethodHandle SET_BOUNDS = GameHandles.method(SIMULATION, "setBounds", void.class, double.class, double.class, double.class, double.class);
+    private static final MethodHandle CENTRE_BALL = GameHandles.method(SIMULATION, "centreBall", void.class);
+    private static final MethodHandle SET_MOUSE = GameHandles.method(SIMULATION, "setMousePosition", void.class, double.class, double.class);
+    private static final MethodHandle STEP = GameHandles.method(SIMULATION, "step", void.class);
+    private static final MethodHandle MOVE_BALL = GameHandles.method(SIMULATION, "moveBall", void.class);
+    private static final MethodHandle STOP_BALL_OOB = GameHandles.method(SIMULATION, "stopBallOOB", void.class);
+    private static final MethodHandle CHANGE_DIRECTION = GameHandles.method(SIMULATION, "changeDirection", void.class);
+    private static final MethodHandle SET_PATH = GameHandles.method(SIMULATION, "setPath", void.class, long.class, GameHandles.gameClass("Trajectory$Style"))
+            .asType(MethodType.methodType(void.class, Object.class, long.class, Object.class));
+    private static final MethodHandle RESET = GameHandles.method(SIMULATION, "reset", void.class);
+    private static final MethodHandle NEW_LAGGED_AGENT = GameHandles.constructor("LaggedPursuitAgent");
+    private static final MethodHandle SET_AGENT = GameHandles.method(SIMULATION, "setAgent", void.class, GameHandles.gameClass("MouseAgent"))
+            .asType(MethodType.methodType(void.class, Object.class, Object.class));
+
+    @Param({"STRAIGHT", "CURVED"})
+    public String pathStyle;
+
+    private Object simulation;
+    private Object agentSimulation;
+
+    @Setup
+    public void setup() throws Throwable {
+        simulation = createSimulation();
+        SET_MOUSE.invokeExact(simulation, 500.0, 325.0);
+
+        agentSimulation = createSimulation();
+        SET_AGENT.invokeExact(agentSimulation, (Object) NEW_LAGGED_AGENT.invokeExact());
+    }
+
+    @Setup(Level.Iteration)
+    public void restart() throws Throwable {
+        restart(simulation);
+        restart(agentSimulation);
+    }
+
+    /*
+    Restarts the run with the ball in the centre, stepping once so the ball has a direction to move in.
+     */
+    private static void restart(Object simulation) throws Throwable {
+        RESET.invokeExact(simulation);
+        CENTRE_BALL.invokeExact(simulation);
+        STEP.invokeExact(simulation);
+    }
+
+    /*
+    A simulation with the default settings and window size, with a run that never finishes.
+     */
+    private Object createSimulation() throws Throwable {
+        Object simulation = NEW_SIMULATION.invokeExact();
+        SET_SETTINGS.invokeExact(simulation, 3, 40, Long.MAX_VALUE / 2_000_000);
+        SET_BOUNDS.invokeExact(simulation, 200.0, 0.0, 800.0, 650.0);
+        SET_PATH.invokeExact(simulation, 42L, styleConstant(pathStyle));
+        return simulation;
+    }
+
+    @Benchmark
+    public void step() throws Throwable {
+        STEP.invokeExact(simulation);
+    }
+
+    @Benchmark
+    public void stepWithAgent() throws Throwable {
+        STEP.invokeExact(agentSimulation);
+    }
+
+    @Benchmark
+    public void moveBall() throws Throwable {
+        STOP_BALL_OOB.invokeExact(simulation);
+        MOVE_BALL.invokeExact(simulation);
+    }
+
+    @Benchmark
+    public void stopBallOOB() throws Throwable {
+        STOP_BALL_OOB.invokeExact(simulation);
+    }
+
+    @Benchmark
+    public void changeDirection() throws Throwable {
+        CHANGE_DIRECTION.invokeExact(simulation);
+    }
+
+    /*
+    The Trajectory.Style constant with the given name.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object styleConstant(String name) {
+        return Enum.valueOf((Class) GameHandles.gameClass("Trajectory$Style"), name);
+    }
+}
@@ -0,0 +1,160 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * Plays many headless runs of {@link TraceSimulation} with a {@link MouseAgent} at the mouse, as fast as
+ * the simulation can step, to check the expected score of an agent across thousands of paths.
+ *
+ * Runs are split into tasks on a {@link ForkJoinPool}, each task reusing one simulation and agent for
+ * its runs and keeping its own {@link AgentStats}, which are merged as the tasks join. Run i uses seed
+ * firstSeed + i, so the results don't depend on how the runs were split.
+ *
+ * Usage: java AgentRunner [agent|all] [runs] [ball speed] [ball radius] [runtime in seconds]
+ */
+public class AgentRunner {
+    // Constants
+    private static final int RUNS_PER_TASK = 16;
+    // Play area of TraceGame at its default window size
+    private static final double AREA_LEFT = 200;
+    private static final double AREA_RIGHT = 800;
+    private static final double AREA_BOTTOM = 650;
+    private static final String[] AGENT_NAMES = {"perfect", "lagged", "random"};
+
+    // Properties
+    private final Supplier<MouseAgent> agents;
+    private int ballSpeed = 3;
+    private int ballRadius = 40;
+    private long runtimeMillis = 30000;
+    private int decoyCount = 0;
+    private Trajectory.Style pathStyle = Trajectory.Style.STRAIGHT;
+
+    /**
+     * @param agents Creates the agent for each task, it must return a new agent every call.
+     */
+    public AgentRunner(Supplier<MouseAgent> agents) {
+        this.agents = agents;
+    }
+
+    /**
+     * Changes the game settings of the runs, see {@link TraceSimulation#setSettings(int, int, long)}.
+     */
+    public void setSettings(int ballSpeed, int ballRadius, long runtimeMillis) {
+        this.ballSpeed = ballSpeed;
+        this.ballRadius = ballRadius;
+        this.runtimeMillis = runtimeMillis;
+    }
+
+    public void setDecoyCount(int decoyCount) {
+        this.decoyCount = decoyCount;
+    }
+
+    public void setPathStyle(Trajectory.Style pathStyle) {
+        this.pathStyle = pathStyle;
+    }
+
+    /**
+     * Plays the runs and waits for them to finish.
+     * @param pool Pool to run them on.
+     * @param runs Number of runs.
+     * @param firstSeed Seed of the first run, the rest follow on from it.
+     * @return Scores of every run.
+     */
+    public AgentStats run(ForkJoinPool pool, int runs, long firstSeed) {
+        return pool.invoke(new RunTask(firstSeed, 0, runs));
+    }
+
+    /**
+     * Plays the runs one after the other on this thread, for callers that are already running in
+     * parallel. Gives the same results as run().
+     * @param runs Number of runs.
+     * @param firstSeed Seed of the first run, the rest follow on from it.
+     * @return Scores of every run.
+     */
+    public AgentStats runHere(int runs, long firstSeed) {
+        return playRuns(firstSeed, 0, runs);
+    }
+
+    /*
+    Plays runs [from, to) on this thread with one simulation and agent.
+     */
+    private AgentStats playRuns(long firstSeed, int from, int to) {
+        AgentStats stats = new AgentStats();
+        TraceSimulation simulation = new TraceSimulation(firstSeed + from);
+        simulation.setBounds(AREA_LEFT, 0, AREA_RIGHT, AREA_BOTTOM);
+        simulation.setSettings(ballSpeed, ballRadius, runtimeMillis);
+        simulation.setAgent(agents.get());
+        for (int i = from; i < to; i++) {
+            simulation.setPath(firstSeed + i, pathStyle);
+            simulation.centreBall();
+            simulation.reset();
+            // Scatter the decoys from the run's own seed, as the game does
+            simulation.setDecoyCount(decoyCount);
+            while (!simulation.isFinished()) simulation.step();
+            stats.record(simulation);
+        }
+        return stats;
+    }
+
+    /*
+    Plays runs [from, to), splitting them in half until there are few enough for one task.
+     */
+    private class RunTask extends RecursiveTask<AgentStats> {
+        private static final long serialVersionUID = 1L;
+
+        private final long firstSeed;
+        private final int from, to;
+
+        RunTask(long firstSeed, int from, int to) {
+            this.firstSeed = firstSeed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected AgentStats compute() {
+            if (to - from > RUNS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                RunTask second = new RunTask(firstSeed, middle, to);
+                second.fork();
+                AgentStats stats = new RunTask(firstSeed, from, middle).compute();
+                stats.merge(second.join());
+                return stats;
+            }
+            return playRuns(firstSeed, from, to);
+        }
+    }
+
+    public static void main(String[] args) {
+        String agent = args.length > 0 ? args[0] : "all";
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int ballSpeed = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        int ballRadius = args.length > 3 ? Integer.parseInt(args[3]) : 40;
+        long runtimeMillis = args.length > 4 ? Long.parseLong(args[4]) * 1000 : 30000;
+
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        System.out.printf("%d runs each of speed %d, radius %d, %ds on %d threads%n", runs, ballSpeed, ballRadius,
+                runtimeMillis / 1000, pool.getParallelism());
+        System.out.println("agent      mean on ball   p10 / p50 / p90 (s)      mean RMS error   runs/s   x real time");
+        for (String name : agent.equals("all") ? AGENT_NAMES : new String[] {agent}) {
+            MouseAgent.named(name);     // Fail now on a bad name rather than in the pool
+            AgentRunner runner = new AgentRunner(() -> MouseAgent.named(name));
+            runner.setSettings(ballSpeed, ballRadius, runtimeMillis);
+
+            long start = System.nanoTime();
+            AgentStats stats = runner.run(pool, runs, 0);
+            long elapsed = System.nanoTime() - start;
+
+            QuantileSketch onBall = stats.getTimeOnBall();
+            System.out.printf("%-8s   %10.2fs   %5.2f / %5.2f / %5.2f   %12.1fpx   %6.0f   %11.0f%n", name,
+                    stats.getMeanTimeOnBallNanos() / GameClock.NANOS_PER_SECOND,
+                    onBall.getQuantile(0.1) / (double) GameClock.NANOS_PER_SECOND,
+                    onBall.getQuantile(0.5) / (double) GameClock.NANOS_PER_SECOND,
+                    onBall.getQuantile(0.9) / (double) GameClock.NANOS_PER_SECOND,
+                    stats.getMeanRmsError(),
+                    stats.getRuns() / (elapsed / (double) GameClock.NANOS_PER_SECOND),
+                    stats.getSimulatedNanos() / (double) elapsed);
+        }
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Scores of many {@link MouseAgent} runs: the distribution of time on ball, and the mean tracking error.
+ * Stats from runs done in parallel are combined with merge().
+ */
+public class AgentStats {
+    // Properties
+    private final QuantileSketch timeOnBall = new QuantileSketch();
+    private double rmsErrorSum = 0;
+    private double timeOnBallSum = 0;
+    private long simulatedNanos = 0;
+
+    /**
+     * Adds the score of a finished run.
+     */
+    public void record(TraceSimulation simulation) {
+        long onBall = simulation.getTimeOnBallNanos();
+        timeOnBall.record(onBall);
+        timeOnBallSum += onBall;
+        rmsErrorSum += simulation.getScore().getRmsError();
+        simulatedNanos += simulation.getSimTimeNanos();
+    }
+
+    /**
+     * Adds every run of other to these stats.
+     */
+    public void merge(AgentStats other) {
+        timeOnBall.merge(other.timeOnBall);
+        timeOnBallSum += other.timeOnBallSum;
+        rmsErrorSum += other.rmsErrorSum;
+        simulatedNanos += other.simulatedNanos;
+    }
+
+    public long getRuns() {
+        return timeOnBall.getCount();
+    }
+
+    /**
+     * @return Distribution of the time on ball of each run, in nanoseconds.
+     */
+    public QuantileSketch getTimeOnBall() {
+        return timeOnBall;
+    }
+
+    public double getMeanTimeOnBallNanos() {
+        return getRuns() == 0 ? 0 : timeOnBallSum / getRuns();
+    }
+
+    public double getMeanRmsError() {
+        return getRuns() == 0 ? 0 : rmsErrorSum / getRuns();
+    }
+
+    /**
+     * @return Total game time of every run.
+     */
+    public long getSimulatedNanos() {
+        return simulatedNanos;
+    }
+}
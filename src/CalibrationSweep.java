@@ -0,0 +1,132 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Command line tool measuring how hard every combination of {@link TraceGame} settings is, over the
+ * whole range of the settings sliders: ball speed 0 to 10, radius 0 to 100 (every RADIUS_STEP by
+ * default) and a few run times.
+ *
+ * Each cell of the grid is played headless by {@link AgentRunner} with model players: the lagged pursuit
+ * agent, whose share of time on ball is the difficulty, and the random walk as the chance baseline. The
+ * cells are spread across every core with a parallel stream, each cell running its agents on its own
+ * thread, and the rows are written to the CSV in grid order as they come in. The CSV is read by
+ * {@link DifficultyTable} to rate the settings in the game, and a text heatmap of the default run time
+ * is printed at the end.
+ *
+ * Usage: java CalibrationSweep [output csv] [runs per cell] [radius step]
+ * Copy the output to src/difficulty.csv to ship it with the game.
+ */
+public class CalibrationSweep {
+    // Constants
+    public static final String CSV_HEADER = "speed,radius,runtime_s,runs,lagged_on_ball,lagged_p10,lagged_p90,random_on_ball";
+    private static final int MAX_SPEED = 10;
+    private static final int MAX_RADIUS = 100;
+    private static final int RADIUS_STEP = 5;
+    private static final int[] RUNTIMES = {10, 30, 60};
+    private static final int HEATMAP_RUNTIME = 30;
+    private static final int DEFAULT_RUNS = 64;
+    private static final String HEATMAP_SHADES = " .:-=+*#%@";  // Light for easy, dark for hard
+
+    public static void main(String[] args) throws IOException {
+        Path output = Paths.get(args.length > 0 ? args[0] : "difficulty.csv");
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_RUNS;
+        int radiusStep = args.length > 2 ? Integer.parseInt(args[2]) : RADIUS_STEP;
+
+        int speedCount = MAX_SPEED + 1;
+        int radiusCount = MAX_RADIUS / radiusStep + 1;
+        int cells = RUNTIMES.length * speedCount * radiusCount;
+        double[] heatmap = new double[speedCount * radiusCount];
+        System.out.printf("%d cells of %d runs on %d cores%n", cells, runs, Runtime.getRuntime().availableProcessors());
+
+        long start = System.nanoTime();
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(output))) {
+            out.println(CSV_HEADER);
+            IntStream.range(0, cells).parallel()
+                    .mapToObj(cell -> {
+                        int runtime = RUNTIMES[cell / (speedCount * radiusCount)];
+                        int speed = cell / radiusCount % speedCount;
+                        int radius = cell % radiusCount * radiusStep;
+                        return measure(speed, radius, runtime, runs);
+                    })
+                    .forEachOrdered(row -> {
+                        out.println(row.toCsv());
+                        if (row.runtime == HEATMAP_RUNTIME) {
+                            heatmap[row.speed * radiusCount + row.radius / radiusStep] = row.laggedOnBall;
+                        }
+                    });
+        }
+        double seconds = (System.nanoTime() - start) / (double) GameClock.NANOS_PER_SECOND;
+        System.out.printf("Wrote %s in %.1fs%n%n", output, seconds);
+
+        printHeatmap(heatmap, speedCount, radiusCount, radiusStep);
+    }
+
+    /*
+    Plays one cell of the grid with each model player.
+     */
+    private static Cell measure(int speed, int radius, int runtime, int runs) {
+        AgentRunner lagged = new AgentRunner(LaggedPursuitAgent::new);
+        lagged.setSettings(speed, radius, runtime * 1000L);
+        AgentStats laggedStats = lagged.runHere(runs, 0);
+
+        AgentRunner random = new AgentRunner(RandomWalkAgent::new);
+        random.setSettings(speed, radius, runtime * 1000L);
+        AgentStats randomStats = random.runHere(runs, 0);
+
+        double runtimeNanos = runtime * (double) GameClock.NANOS_PER_SECOND;
+        return new Cell(speed, radius, runtime, runs,
+                Math.min(1, laggedStats.getMeanTimeOnBallNanos() / runtimeNanos),
+                Math.min(1, laggedStats.getTimeOnBall().getQuantile(0.1) / runtimeNanos),
+                Math.min(1, laggedStats.getTimeOnBall().getQuantile(0.9) / runtimeNanos),
+                Math.min(1, randomStats.getMeanTimeOnBallNanos() / runtimeNanos));
+    }
+
+    /*
+    Prints the lagged player's time on ball at HEATMAP_RUNTIME, a row per speed and a column per radius,
+    with its difficulty rating shaded.
+     */
+    private static void printHeatmap(double[] heatmap, int speedCount, int radiusCount, int radiusStep) {
+        System.out.println("Model player's time on ball over " + HEATMAP_RUNTIME + "s runs ('" + HEATMAP_SHADES.charAt(0)
+                + "' all the time, '" + HEATMAP_SHADES.charAt(HEATMAP_SHADES.length() - 1) + "' never)");
+        System.out.printf("speed | radius 0 to %d, every %d%n", (radiusCount - 1) * radiusStep, radiusStep);
+        for (int speed = speedCount - 1; speed >= 0; speed--) {
+            StringBuilder line = new StringBuilder(String.format("%5d | ", speed));
+            for (int r = 0; r < radiusCount; r++) {
+                double onBall = heatmap[speed * radiusCount + r];
+                int shade = (int) Math.round((1 - onBall) * (HEATMAP_SHADES.length() - 1));
+                line.append(HEATMAP_SHADES.charAt(shade)).append(HEATMAP_SHADES.charAt(shade));
+            }
+            System.out.println(line);
+        }
+    }
+
+    /*
+    Results of one cell of the grid, time on ball as a share of the run.
+     */
+    private static class Cell {
+        final int speed, radius, runtime, runs;
+        final double laggedOnBall, laggedP10, laggedP90, randomOnBall;
+
+        Cell(int speed, int radius, int runtime, int runs, double laggedOnBall, double laggedP10, double laggedP90,
+             double randomOnBall) {
+            this.speed = speed;
+            this.radius = radius;
+            this.runtime = runtime;
+            this.runs = runs;
+            this.laggedOnBall = laggedOnBall;
+            this.laggedP10 = laggedP10;
+            this.laggedP90 = laggedP90;
+            this.randomOnBall = randomOnBall;
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%d,%d,%d,%d,%.4f,%.4f,%.4f,%.4f", speed, radius, runtime, runs,
+                    laggedOnBall, laggedP10, laggedP90, randomOnBall);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Paint;
+
+import java.util.Objects;
+
+/**
+ * {@link TraceRenderer} drawing the whole play area onto one {@link Canvas}, so the scene graph holds a
+ * single node however many decoys there are.
+ *
+ * Decoys are drawn as one batch sharing a fill, with no per-shape state changes. Without decoys only
+ * the region the ball and cursor moved through is cleared and redrawn, and nothing is drawn at all on
+ * frames where neither moved. The canvas is cleared rather than filled, so the scene fill (e.g. the RGB
+ * scene) shows through.
+ */
+public class CanvasTraceRenderer implements TraceRenderer {
+    // Constants
+    private static final double DIRTY_MARGIN = 2;   // Extra px redrawn around a shape for its anti-aliased edge
+
+    // Properties
+    private final Canvas canvas = new Canvas();
+    private final GraphicsContext gc = canvas.getGraphicsContext2D();
+    private double originX = 0, originY = 0;        // Scene coordinates of the canvas' top left
+    private boolean fullRedraw = true;
+
+    // What is being drawn this frame
+    private final Shape ball = new Shape();
+    private final Shape cursor = new Shape();
+    private TargetField decoys = null;
+    private double decoyInterpolation;
+    private Paint decoyFill;
+
+    // What was drawn last frame
+    private final Shape shownBall = new Shape();
+    private final Shape shownCursor = new Shape();
+    private boolean decoysShown = false;
+
+    // Scene coordinates of the region to redraw
+    private double dirtyLeft, dirtyTop, dirtyRight, dirtyBottom;
+
+    public CanvasTraceRenderer() {
+        canvas.setMouseTransparent(true);
+    }
+
+    @Override
+    public Node getNode() {
+        return canvas;
+    }
+
+    @Override
+    public void setPlayArea(double left, double top, double right, double bottom) {
+        originX = left;
+        originY = top;
+        canvas.setLayoutX(left);
+        canvas.setLayoutY(top);
+        canvas.setWidth(Math.max(right - left, 0));
+        canvas.setHeight(Math.max(bottom - top, 0));
+        fullRedraw = true;
+    }
+
+    @Override
+    public void beginFrame() {
+        ball.drawn = false;
+        cursor.drawn = false;
+        decoys = null;
+    }
+
+    @Override
+    public void drawBall(double x, double y, double radius, Paint fill) {
+        ball.set(x, y, radius, fill);
+    }
+
+    @Override
+    public void drawDecoys(TargetField decoys, double interpolation, Paint fill) {
+        if (decoys.getCount() == 0) return;
+        this.decoys = decoys;
+        decoyInterpolation = interpolation;
+        decoyFill = fill;
+    }
+
+    @Override
+    public void drawCursor(double x, double y, double radius, Paint fill) {
+        cursor.set(x, y, radius, fill);
+    }
+
+    @Override
+    public void endFrame() {
+        // Moving decoys cover the whole area, so redraw it all while there are any
+        if (fullRedraw || decoys != null || decoysShown) {
+            gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+            drawScene();
+            fullRedraw = false;
+        } else if (!ball.sameAs(shownBall) || !cursor.sameAs(shownCursor)) {
+            // Redraw just the box covering where the ball and cursor were and are now
+            dirtyLeft = dirtyTop = Double.POSITIVE_INFINITY;
+            dirtyRight = dirtyBottom = Double.NEGATIVE_INFINITY;
+            addDirty(ball);
+            addDirty(shownBall);
+            addDirty(cursor);
+            addDirty(shownCursor);
+            double x = dirtyLeft - originX - DIRTY_MARGIN;
+            double y = dirtyTop - originY - DIRTY_MARGIN;
+            double w = dirtyRight - dirtyLeft + 2 * DIRTY_MARGIN;
+            double h = dirtyBottom - dirtyTop + 2 * DIRTY_MARGIN;
+
+            gc.save();
+            gc.beginPath();
+            gc.rect(x, y, w, h);
+            gc.clip();
+            gc.clearRect(x, y, w, h);
+            drawScene();
+            gc.restore();
+        }
+
+        shownBall.copy(ball);
+        shownCursor.copy(cursor);
+        decoysShown = decoys != null;
+    }
+
+    /*
+    Draws everything in this frame, decoys first so the ball and cursor are on top.
+     */
+    private void drawScene() {
+        if (decoys != null) {
+            gc.setFill(decoyFill);
+            double r = decoys.getRadius();
+            for (int i = 0; i < decoys.getCount(); i++) {
+                gc.fillOval(decoys.getRenderX(i, decoyInterpolation) - r - originX,
+                        decoys.getRenderY(i, decoyInterpolation) - r - originY, 2 * r, 2 * r);
+            }
+        }
+        drawShape(ball);
+        drawShape(cursor);
+    }
+
+    /*
+    Grows the dirty region to cover the shape, if it was drawn.
+     */
+    private void addDirty(Shape s) {
+        if (!s.drawn) return;
+        dirtyLeft = Math.min(dirtyLeft, s.x - s.radius);
+        dirtyTop = Math.min(dirtyTop, s.y - s.radius);
+        dirtyRight = Math.max(dirtyRight, s.x + s.radius);
+        dirtyBottom = Math.max(dirtyBottom, s.y + s.radius);
+    }
+
+    private void drawShape(Shape s) {
+        if (!s.drawn) return;
+        gc.setFill(s.fill);
+        gc.fillOval(s.x - s.radius - originX, s.y - s.radius - originY, 2 * s.radius, 2 * s.radius);
+    }
+
+    /*
+    A circle drawn in a frame, kept to compare with the next frame.
+     */
+    private static final class Shape {
+        boolean drawn = false;
+        double x, y, radius;
+        Paint fill;
+
+        void set(double x, double y, double radius, Paint fill) {
+            drawn = true;
+            this.x = x;
+            this.y = y;
+            this.radius = radius;
+            this.fill = fill;
+        }
+
+        void copy(Shape other) {
+            drawn = other.drawn;
+            x = other.x;
+            y = other.y;
+            radius = other.radius;
+            fill = other.fill;
+        }
+
+        boolean sameAs(Shape other) {
+            if (drawn != other.drawn) return false;
+            return !drawn || (x == other.x && y == other.y && radius == other.radius && Objects.equals(fill, other.fill));
+        }
+    }
+}
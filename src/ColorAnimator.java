@@ -0,0 +1,75 @@
+import javafx.scene.paint.Color;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Animates the colour of any number of targets through {@link Palette}s from one clock, ticked by the
+ * game loop's pulse rather than a timer per target.
+ *
+ * Each tick works out every target's colour from the time since the first tick, offset by the target's
+ * phase, and only hands the target its colour when it has changed. Ticking doesn't allocate, and a
+ * target stops animating as soon as the game loop stops.
+ */
+public class ColorAnimator {
+    // Properties
+    private final List<Target> targets = new ArrayList<>();
+    private long startNanos = -1;
+
+    /**
+     * Animates a target, starting it on the colour due at the current time.
+     * @param palette Colours to go through.
+     * @param phaseNanos How far ahead of the other targets this one is in its palette.
+     * @param target Given the new colour whenever it changes.
+     */
+    public void add(Palette palette, long phaseNanos, Consumer<? super Color> target) {
+        targets.add(new Target(palette, phaseNanos, target));
+    }
+
+    /**
+     * Stops animating every target, leaving them on their current colours.
+     */
+    public void clear() {
+        targets.clear();
+        startNanos = -1;
+    }
+
+    /**
+     * Updates every target to its colour at the given time.
+     * @param now Pulse timestamp in nanoseconds.
+     */
+    public void tick(long now) {
+        if (targets.isEmpty()) return;
+        if (startNanos < 0) startNanos = now;
+        long elapsed = now - startNanos;
+        for (int i = 0; i < targets.size(); i++) {
+            Target target = targets.get(i);
+            int index = target.palette.indexAt(elapsed + target.phaseNanos);
+            if (index != target.shown) {
+                target.shown = index;
+                target.consumer.accept(target.palette.getColor(index));
+            }
+        }
+    }
+
+    public int getTargetCount() {
+        return targets.size();
+    }
+
+    /*
+    A target being animated and the index of the colour it was last given.
+     */
+    private static class Target {
+        final Palette palette;
+        final long phaseNanos;
+        final Consumer<? super Color> consumer;
+        int shown = -1;
+
+        Target(Palette palette, long phaseNanos, Consumer<? super Color> consumer) {
+            this.palette = palette;
+            this.phaseNanos = phaseNanos;
+            this.consumer = consumer;
+        }
+    }
+}
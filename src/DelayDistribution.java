@@ -0,0 +1,108 @@
+import java.util.Random;
+
+/**
+ * Distribution of the wait before the stimulus in {@link ReactionGame}, so the player can't learn when
+ * it is coming.
+ *
+ * FIXED always waits the same time, UNIFORM any time between a minimum and maximum, and EXPONENTIAL the
+ * minimum plus an exponential wait (mean a quarter of the range, redrawn if past the maximum). The
+ * exponential wait is as likely to end in the next moment however long it has gone on, so waiting
+ * gives no clue, where a uniform wait becomes certain towards its maximum.
+ */
+public class DelayDistribution {
+    // Constants
+    private static final int EXPONENTIAL_MEANS_PER_RANGE = 4;
+
+    /**
+     * Shape of the distribution.
+     */
+    public enum Shape {
+        FIXED,
+        UNIFORM,
+        EXPONENTIAL
+    }
+
+    // Properties
+    private final Shape shape;
+    private final long minNanos;
+    private final long maxNanos;
+
+    /**
+     * @param shape Shape of the distribution.
+     * @param minNanos Shortest wait, the only wait for FIXED.
+     * @param maxNanos Longest wait, ignored for FIXED.
+     */
+    public DelayDistribution(Shape shape, long minNanos, long maxNanos) {
+        if (minNanos < 0 || (shape != Shape.FIXED && maxNanos <= minNanos)) {
+            throw new IllegalArgumentException("Bad delay range: " + minNanos + " to " + maxNanos + "ns");
+        }
+        this.shape = shape;
+        this.minNanos = minNanos;
+        this.maxNanos = shape == Shape.FIXED ? minNanos : maxNanos;
+    }
+
+    /**
+     * Reads a distribution written as "fixed:MS", "uniform:MIN-MAX" or "exponential:MIN-MAX", in
+     * milliseconds, e.g. "uniform:1000-6000".
+     * @throws IllegalArgumentException If the text isn't a distribution.
+     */
+    public static DelayDistribution parse(String text) {
+        int colon = text.indexOf(':');
+        if (colon < 0) throw new IllegalArgumentException("Delay distribution needs a shape: " + text);
+        Shape shape;
+        try {
+            shape = Shape.valueOf(text.substring(0, colon).trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown delay distribution: " + text);
+        }
+
+        String range = text.substring(colon + 1).trim();
+        int dash = range.indexOf('-');
+        try {
+            long min = Long.parseLong(dash < 0 ? range : range.substring(0, dash).trim());
+            long max = dash < 0 ? min : Long.parseLong(range.substring(dash + 1).trim());
+            return new DelayDistribution(shape, min * GameClock.NANOS_PER_MILLI, max * GameClock.NANOS_PER_MILLI);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad delay range: " + text);
+        }
+    }
+
+    /**
+     * @return A wait drawn from the distribution.
+     */
+    public long sample(Random random) {
+        long range = maxNanos - minNanos;
+        switch (shape) {
+            case UNIFORM:
+                return minNanos + (long) (random.nextDouble() * range);
+            case EXPONENTIAL:
+                double mean = range / (double) EXPONENTIAL_MEANS_PER_RANGE;
+                long wait;
+                do {
+                    wait = (long) (-Math.log(1 - random.nextDouble()) * mean);
+                } while (wait > range);
+                return minNanos + wait;
+            default:
+                return minNanos;
+        }
+    }
+
+    public Shape getShape() {
+        return shape;
+    }
+
+    public long getMinNanos() {
+        return minNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        long min = minNanos / GameClock.NANOS_PER_MILLI;
+        if (shape == Shape.FIXED) return "fixed:" + min;
+        return shape.name().toLowerCase() + ":" + min + "-" + maxNanos / GameClock.NANOS_PER_MILLI;
+    }
+}
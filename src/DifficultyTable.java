@@ -0,0 +1,160 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * How hard each combination of {@link TraceGame} settings is, measured by {@link CalibrationSweep} as
+ * the share of the run a model player (a {@link LaggedPursuitAgent}) keeps the mouse on the ball.
+ *
+ * The table is the CSV the sweep writes, shipped as the DEFAULT_RESOURCE. Settings between the measured
+ * speeds and radii are interpolated, and the nearest measured runtime is used.
+ */
+public class DifficultyTable {
+    // Constants
+    public static final String DEFAULT_RESOURCE = "/difficulty.csv";
+    private static final String[] RATINGS = {"Extreme", "Very hard", "Hard", "Medium", "Easy"};
+    private static final double[] RATING_FLOORS = {0, 0.1, 0.25, 0.5, 0.75};  // Least time on ball for each rating
+
+    // Properties
+    private final int[] speeds;
+    private final int[] radii;
+    private final int[] runtimes;       // Seconds
+    private final double[] onBall;      // Indexed [runtime][speed][radius], NaN where not measured
+
+    private DifficultyTable(int[] speeds, int[] radii, int[] runtimes) {
+        this.speeds = speeds;
+        this.radii = radii;
+        this.runtimes = runtimes;
+        onBall = new double[runtimes.length * speeds.length * radii.length];
+        Arrays.fill(onBall, Double.NaN);
+    }
+
+    /**
+     * Reads a table written by {@link CalibrationSweep}.
+     * @throws IOException If the table can't be read or isn't a sweep's output.
+     */
+    public static DifficultyTable load(InputStream in) throws IOException {
+        List<double[]> rows = new ArrayList<>();
+        TreeSet<Integer> speeds = new TreeSet<>(), radii = new TreeSet<>(), runtimes = new TreeSet<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        if (header == null || !header.startsWith(CalibrationSweep.CSV_HEADER)) {
+            throw new IOException("Not a calibration table");
+        }
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (line.isBlank()) continue;
+            String[] fields = line.split(",");
+            try {
+                double[] row = {Integer.parseInt(fields[0]), Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                        Double.parseDouble(fields[4])};
+                speeds.add((int) row[0]);
+                radii.add((int) row[1]);
+                runtimes.add((int) row[2]);
+                rows.add(row);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Bad calibration row: " + line);
+            }
+        }
+        if (rows.isEmpty()) throw new IOException("Empty calibration table");
+
+        DifficultyTable table = new DifficultyTable(toArray(speeds), toArray(radii), toArray(runtimes));
+        for (double[] row : rows) {
+            int index = table.index(Arrays.binarySearch(table.runtimes, (int) row[2]),
+                    Arrays.binarySearch(table.speeds, (int) row[0]), Arrays.binarySearch(table.radii, (int) row[1]));
+            table.onBall[index] = row[3];
+        }
+        return table;
+    }
+
+    /**
+     * @return The table shipped with the game, or null if there isn't one or it can't be read.
+     */
+    public static DifficultyTable loadDefault() {
+        try (InputStream in = DifficultyTable.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+            if (in == null) return null;
+            return load(in);
+        } catch (IOException e) {
+            System.err.println("Couldn't read the difficulty table: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return Share of the run the model player spends on the ball with these settings, NaN if the
+     * table doesn't cover them.
+     */
+    public double getOnBallFraction(double speed, double radius, double runtimeSeconds) {
+        int runtime = nearest(runtimes, runtimeSeconds);
+        int s = lowerIndex(speeds, speed);
+        int r = lowerIndex(radii, radius);
+        double sFraction = fraction(speeds, s, speed);
+        double rFraction = fraction(radii, r, radius);
+        int s1 = Math.min(s + 1, speeds.length - 1);
+        int r1 = Math.min(r + 1, radii.length - 1);
+
+        double low = lerp(onBall[index(runtime, s, r)], onBall[index(runtime, s, r1)], rFraction);
+        double high = lerp(onBall[index(runtime, s1, r)], onBall[index(runtime, s1, r1)], rFraction);
+        return lerp(low, high, sFraction);
+    }
+
+    /**
+     * @return A word for how hard settings are, from the share of the run a model player spends on the
+     * ball with them.
+     */
+    public static String rating(double onBallFraction) {
+        if (Double.isNaN(onBallFraction)) return "Unknown";
+        for (int i = RATING_FLOORS.length - 1; i > 0; i--) {
+            if (onBallFraction >= RATING_FLOORS[i]) return RATINGS[i];
+        }
+        return RATINGS[0];
+    }
+
+    /*
+    Position in onBall of the given grid cell.
+     */
+    private int index(int runtime, int speed, int radius) {
+        return (runtime * speeds.length + speed) * radii.length + radius;
+    }
+
+    /*
+    Index of the last grid value at or below the given value, 0 if they are all above it.
+     */
+    private static int lowerIndex(int[] values, double value) {
+        int i = 0;
+        while (i + 1 < values.length && values[i + 1] <= value) i++;
+        return i;
+    }
+
+    /*
+    How far the value is from values[i] towards values[i + 1], between 0 and 1.
+     */
+    private static double fraction(int[] values, int i, double value) {
+        if (i + 1 >= values.length) return 0;
+        return Math.max(0, Math.min(1, (value - values[i]) / (values[i + 1] - values[i])));
+    }
+
+    /*
+    Index of the grid value closest to the given value.
+     */
+    private static int nearest(int[] values, double value) {
+        int best = 0;
+        for (int i = 1; i < values.length; i++) {
+            if (Math.abs(values[i] - value) < Math.abs(values[best] - value)) best = i;
+        }
+        return best;
+    }
+
+    private static double lerp(double a, double b, double t) {
+        return a + (b - a) * t;
+    }
+
+    private static int[] toArray(TreeSet<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Reusable character buffer for building HUD text without {@link java.util.Formatter} or temporary
+ * strings. Fixed-point numbers are written straight into the buffer as digits, e.g. 1234 with 2
+ * decimals is written as "12.34".
+ *
+ * The buffer only grows if a longer text than ever before is written, so once warmed up nothing is
+ * allocated unless {@link #toString()} is called.
+ */
+public class FixedPointText implements CharSequence {
+    // Properties
+    private char[] buffer;
+    private int length = 0;
+
+    /**
+     * @param capacity Number of characters to reserve.
+     */
+    public FixedPointText(int capacity) {
+        buffer = new char[capacity];
+    }
+
+    /**
+     * Empties the buffer.
+     * @return This buffer.
+     */
+    public FixedPointText clear() {
+        length = 0;
+        return this;
+    }
+
+    /**
+     * @return This buffer.
+     */
+    public FixedPointText append(char c) {
+        ensureCapacity(length + 1);
+        buffer[length++] = c;
+        return this;
+    }
+
+    /**
+     * @return This buffer.
+     */
+    public FixedPointText append(CharSequence s) {
+        int n = s.length();
+        ensureCapacity(length + n);
+        for (int i = 0; i < n; i++) {
+            buffer[length++] = s.charAt(i);
+        }
+        return this;
+    }
+
+    /**
+     * Appends a whole number.
+     * @return This buffer.
+     */
+    public FixedPointText appendInt(long value) {
+        return appendFixed(value, 0);
+    }
+
+    /**
+     * Appends a fixed-point number, always with at least one digit before the point.
+     * @param value Number scaled up by 10^decimals, e.g. hundredths of a second for 2 decimals.
+     * @param decimals Number of digits after the point.
+     * @return This buffer.
+     */
+    public FixedPointText appendFixed(long value, int decimals) {
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+
+        // Count the digits so the number can be written right to left in place
+        int digits = 1;
+        for (long rest = value; rest >= 10; rest /= 10) digits++;
+        int total = Math.max(digits, decimals + 1);
+        int charCount = total + (decimals > 0 ? 1 : 0);
+        ensureCapacity(length + charCount);
+
+        int pos = length + charCount - 1;
+        for (int i = 0; i < total; i++) {
+            if (decimals > 0 && i == decimals) buffer[pos--] = '.';
+            buffer[pos--] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        length += charCount;
+        return this;
+    }
+
+    /**
+     * @return Whether this buffer holds exactly the given characters.
+     */
+    public boolean contentEquals(CharSequence s) {
+        if (s == null || s.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (buffer[i] != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) throw new IndexOutOfBoundsException("No character " + index);
+        return buffer[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+
+    /*
+    Grows the buffer to hold at least the given number of characters.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= buffer.length) return;
+        char[] grown = new char[Math.max(capacity, buffer.length * 2)];
+        System.arraycopy(buffer, 0, grown, 0, length);
+        buffer = grown;
+    }
+}
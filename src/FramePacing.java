@@ -0,0 +1,141 @@
+/**
+ * How often the games draw a frame, chosen at startup with the PROPERTY system property:
+ *  - "vsync" (the default) pulses at the display's rate, 60 Hz unless given as e.g. "vsync:144", and
+ *    every frame waits for the display to refresh, so there's no tearing
+ *  - "uncapped" pulses as fast as frames can be drawn and doesn't wait for the display, for the least
+ *    latency on high refresh displays
+ *  - "fixed:HZ" pulses at the given rate without waiting for the display, e.g. "fixed:30" to save power
+ *
+ * JavaFX reads its pulse and vsync settings once, as its toolkit starts, so apply() has to be called
+ * before the application is launched.
+ */
+public class FramePacing {
+    // Constants
+    public static final String PROPERTY = "mouseskills.framePacing";
+    private static final String DEFAULT_PACING = "vsync";
+    private static final int DEFAULT_RATE = 60;     // JavaFX's own pulse rate
+    private static final int MAX_RATE = 1000;       // JavaFX's pulse timer only counts whole milliseconds
+    // JavaFX settings, see com.sun.scenario.animation.AbstractPrimaryTimer and com.sun.prism.impl.PrismSettings
+    private static final String PULSE_PROPERTY = "javafx.animation.pulse";
+    private static final String FULLSPEED_PROPERTY = "javafx.animation.fullspeed";
+    private static final String VSYNC_PROPERTY = "prism.vsync";
+
+    private static FramePacing current = null;
+
+    /**
+     * When frames are drawn.
+     */
+    public enum Mode {
+        VSYNC,
+        UNCAPPED,
+        FIXED
+    }
+
+    // Properties
+    private final Mode mode;
+    private final int rate;     // Pulses a second, 0 if uncapped
+
+    /**
+     * @param mode When frames are drawn.
+     * @param rate Pulses a second, ignored if uncapped.
+     */
+    public FramePacing(Mode mode, int rate) {
+        if (mode != Mode.UNCAPPED && (rate <= 0 || rate > MAX_RATE)) {
+            throw new IllegalArgumentException("Frame rate must be between 1 and " + MAX_RATE + " Hz: " + rate);
+        }
+        this.mode = mode;
+        this.rate = mode == Mode.UNCAPPED ? 0 : rate;
+    }
+
+    /**
+     * Reads a pacing written as "vsync", "vsync:HZ", "uncapped" or "fixed:HZ", e.g. "fixed:30".
+     * @throws IllegalArgumentException If the text isn't a pacing.
+     */
+    public static FramePacing parse(String text) {
+        int colon = text.indexOf(':');
+        Mode mode;
+        try {
+            mode = Mode.valueOf((colon < 0 ? text : text.substring(0, colon)).trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown frame pacing: " + text);
+        }
+        if (colon < 0) {
+            if (mode == Mode.FIXED) throw new IllegalArgumentException("Fixed frame pacing needs a rate: " + text);
+            return new FramePacing(mode, DEFAULT_RATE);
+        }
+        if (mode == Mode.UNCAPPED) throw new IllegalArgumentException("Uncapped frame pacing has no rate: " + text);
+        try {
+            return new FramePacing(mode, Integer.parseInt(text.substring(colon + 1).trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad frame rate: " + text);
+        }
+    }
+
+    /**
+     * @return The pacing set by PROPERTY, or DEFAULT_PACING if it isn't set or can't be read.
+     */
+    public static synchronized FramePacing current() {
+        if (current == null) {
+            String text = System.getProperty(PROPERTY, DEFAULT_PACING);
+            try {
+                current = parse(text);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Using " + DEFAULT_PACING + " frame pacing: " + e.getMessage());
+                current = parse(DEFAULT_PACING);
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Sets the JavaFX pulse and vsync properties for this pacing. Only has an effect before the JavaFX
+     * toolkit starts.
+     */
+    public void apply() {
+        System.setProperty(FULLSPEED_PROPERTY, String.valueOf(mode == Mode.UNCAPPED));
+        System.setProperty(VSYNC_PROPERTY, String.valueOf(mode == Mode.VSYNC));
+        if (mode == Mode.UNCAPPED) System.clearProperty(PULSE_PROPERTY);
+        else System.setProperty(PULSE_PROPERTY, String.valueOf(rate));
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return Pulses a second, 0 if uncapped.
+     */
+    public int getRate() {
+        return rate;
+    }
+
+    /**
+     * @return Most pulses a second there can be, JavaFX's fastest pulse timer if uncapped.
+     */
+    public int getMaxPulseRate() {
+        return mode == Mode.UNCAPPED ? MAX_RATE : rate;
+    }
+
+    /**
+     * @return Time between pulses that counts as keeping up, the default 60 Hz frame if uncapped.
+     */
+    public long getFrameNanos() {
+        return GameClock.NANOS_PER_SECOND / (mode == Mode.UNCAPPED ? DEFAULT_RATE : rate);
+    }
+
+    /**
+     * Estimates the time from the mouse moving to the frame showing it appearing on the display, for
+     * frames coming at the given interval. Input waits half a frame on average for the next pulse, and
+     * with vsync the finished frame waits for the next refresh, a frame on average with double buffering.
+     * Drawing the frame and the display's own delay aren't included.
+     * @param meanFrameNanos Measured mean time between pulses.
+     */
+    public long estimateInputToPhotonNanos(double meanFrameNanos) {
+        return Math.round(meanFrameNanos * (mode == Mode.VSYNC ? 1.5 : 0.5));
+    }
+
+    @Override
+    public String toString() {
+        return mode == Mode.UNCAPPED ? "uncapped" : mode.name().toLowerCase() + " " + rate + " Hz";
+    }
+}
@@ -0,0 +1,315 @@
+import jdk.jfr.EventType;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Per-frame instrumentation for a game loop. For every frame it records how long the game loop's
+ * handle() took and the gap since the previous pulse, counts deadlines missed at the target rate of the
+ * {@link FramePacing} and keeps rolling percentiles over the last WINDOW_SIZE frames. The rate actually
+ * achieved and the spread of frame times are kept over every frame, to compare pacing modes.
+ *
+ * A missed deadline with a short handle() points at the JavaFX pipeline (layout, CSS, rendering),
+ * one with a long handle() points at our own code, so both are counted separately.
+ *
+ * The time each pulse spends in CSS and layout, and how many layout passes a watched part of the scene
+ * needed, can be recorded alongside, to see what per-frame changes to the scene graph cost.
+ *
+ * Frames are also recorded as {@link GameEvents.Frame} flight recorder events, every frame that misses a
+ * deadline and one every FRAME_EVENT_INTERVAL frames otherwise, while a recording has them enabled.
+ *
+ * Recording a frame does not allocate, percentiles come from fixed-size bucket histograms. The only
+ * exception is those events, which are only created while a flight recording with them is running.
+ */
+public class FrameStats {
+    // Constants
+    public static final int WINDOW_SIZE = 1024;
+    public static final int FRAME_EVENT_INTERVAL = 60;  // Frames between sampled frame events
+    private static final long BUCKET_NANOS = 50_000;    // 0.05 ms histogram resolution
+    private static final int BUCKET_COUNT = 2000;       // Up to 100 ms, anything longer goes in the last bucket
+    private static final EventType FRAME_EVENT_TYPE = EventType.getEventType(GameEvents.Frame.class);
+
+    // Properties
+    private final FramePacing pacing;
+    private final long frameBudgetNanos;
+    private final RollingWindow handleTimes = new RollingWindow();
+    private final RollingWindow frameGaps = new RollingWindow();
+    private final RollingWindow layoutTimes = new RollingWindow();
+    private long layoutPulses = 0;
+    private long layoutPasses = 0;
+    private long lastPulseNanos = -1;
+    private long frameCount = 0;
+    private long missedDeadlines = 0;
+    private long missedWithSlowHandle = 0;  // Misses where handle() itself took longer than the budget
+    private long maxGapNanos = 0;
+    private long maxHandleNanos = 0;
+    private double gapMean = 0;         // Running mean and sum of squared differences of every gap
+    private double gapSquares = 0;
+
+    /**
+     * @param pacing Frame pacing the game loop runs with, which sets the deadline of each frame.
+     */
+    public FrameStats(FramePacing pacing) {
+        this.pacing = pacing;
+        frameBudgetNanos = pacing.getFrameNanos();
+    }
+
+    /**
+     * Records one frame.
+     * @param now Pulse timestamp given to handle().
+     * @param handleStart {@link System#nanoTime()} at the start of handle().
+     * @param handleEnd {@link System#nanoTime()} at the end of handle().
+     */
+    public void record(long now, long handleStart, long handleEnd) {
+        long handleNanos = handleEnd - handleStart;
+        handleTimes.add(handleNanos);
+        maxHandleNanos = Math.max(maxHandleNanos, handleNanos);
+
+        long gap = -1;
+        long missed = 0;
+        if (lastPulseNanos >= 0) {
+            gap = now - lastPulseNanos;
+            frameGaps.add(gap);
+            maxGapNanos = Math.max(maxGapNanos, gap);
+            // Welford's method, the gaps counted so far are frameCount
+            double delta = gap - gapMean;
+            gapMean += delta / frameCount;
+            gapSquares += delta * (gap - gapMean);
+
+            // Every whole frame budget past the first that the gap covers is a missed deadline. Allow
+            // half a frame of jitter before counting the first one.
+            if (gap > frameBudgetNanos + frameBudgetNanos / 2) {
+                missed = Math.max(1, (gap - frameBudgetNanos / 2) / frameBudgetNanos);
+                missedDeadlines += missed;
+                if (handleNanos > frameBudgetNanos) missedWithSlowHandle += missed;
+            }
+        }
+        lastPulseNanos = now;
+        frameCount++;
+
+        // Checked before creating the event, so nothing is allocated unless a recording will keep it
+        if ((missed > 0 || frameCount % FRAME_EVENT_INTERVAL == 0) && FRAME_EVENT_TYPE.isEnabled()) {
+            GameEvents.Frame event = new GameEvents.Frame();
+            event.frame = frameCount;
+            event.gap = gap;
+            event.handle = handleNanos;
+            event.missedDeadlines = missed;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records the CSS and layout part of one pulse.
+     * @param layoutNanos Time from the pulse's pre-layout listeners to its post-layout listeners.
+     * @param passes Number of times the watched nodes were laid out in the pulse.
+     */
+    public void recordLayout(long layoutNanos, int passes) {
+        layoutTimes.add(layoutNanos);
+        layoutPulses++;
+        layoutPasses += passes;
+    }
+
+    /**
+     * Clears all recorded frames.
+     */
+    public void reset() {
+        handleTimes.clear();
+        frameGaps.clear();
+        layoutTimes.clear();
+        layoutPulses = 0;
+        layoutPasses = 0;
+        lastPulseNanos = -1;
+        frameCount = 0;
+        missedDeadlines = 0;
+        missedWithSlowHandle = 0;
+        maxGapNanos = 0;
+        maxHandleNanos = 0;
+        gapMean = 0;
+        gapSquares = 0;
+    }
+
+    /**
+     * @return Number of frames recorded.
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return Number of frame deadlines missed, a deadline being one frame of the pacing, see {@link FramePacing#getFrameNanos()}.
+     */
+    public long getMissedDeadlines() {
+        return missedDeadlines;
+    }
+
+    /**
+     * @return Number of missed deadlines where handle() alone took longer than a frame.
+     */
+    public long getMissedWithSlowHandle() {
+        return missedWithSlowHandle;
+    }
+
+    /**
+     * @param percentile Percentile between 0 and 100.
+     * @return Approximate handle() duration at that percentile over the window, in nanoseconds.
+     */
+    public long getHandlePercentile(double percentile) {
+        return handleTimes.percentile(percentile);
+    }
+
+    /**
+     * @param percentile Percentile between 0 and 100.
+     * @return Approximate gap between pulses at that percentile over the window, in nanoseconds.
+     */
+    public long getGapPercentile(double percentile) {
+        return frameGaps.percentile(percentile);
+    }
+
+    /**
+     * @return Pulses a second over every recorded frame, 0 before the second frame.
+     */
+    public double getAchievedRate() {
+        return gapMean == 0 ? 0 : GameClock.NANOS_PER_SECOND / gapMean;
+    }
+
+    /**
+     * @return Standard deviation of the gap between pulses over every recorded frame, in nanoseconds.
+     */
+    public double getGapStdDevNanos() {
+        return frameCount > 2 ? Math.sqrt(gapSquares / (frameCount - 2)) : 0;
+    }
+
+    /**
+     * @return Estimated time from a mouse move to the display showing it, see
+     * {@link FramePacing#estimateInputToPhotonNanos(double)}.
+     */
+    public long getInputToPhotonEstimateNanos() {
+        return pacing.estimateInputToPhotonNanos(gapMean);
+    }
+
+    /**
+     * @param percentile Percentile between 0 and 100.
+     * @return Approximate CSS and layout time of a pulse at that percentile over the window, in nanoseconds.
+     */
+    public long getLayoutPercentile(double percentile) {
+        return layoutTimes.percentile(percentile);
+    }
+
+    /**
+     * @return Average number of layout passes of the watched nodes per pulse.
+     */
+    public double getLayoutPassesPerPulse() {
+        return layoutPulses == 0 ? 0 : layoutPasses / (double) layoutPulses;
+    }
+
+    /**
+     * @return Short summary, for an on-screen overlay. Layout times are only included once recorded.
+     */
+    public String summary() {
+        String frames = String.format("%s: %.1f Hz, SD %.2f ms, input to photon ~%.1f ms%n"
+                        + "frame p50 %.2f p99 %.2f max %.2f ms | handle p50 %.3f p99 %.3f ms | missed %d (%d ours)",
+                pacing, getAchievedRate(), getGapStdDevNanos() / GameClock.NANOS_PER_MILLI,
+                toMillis(getInputToPhotonEstimateNanos()),
+                toMillis(getGapPercentile(50)), toMillis(getGapPercentile(99)), toMillis(maxGapNanos),
+                toMillis(getHandlePercentile(50)), toMillis(getHandlePercentile(99)),
+                missedDeadlines, missedWithSlowHandle);
+        if (layoutPulses == 0) return frames;
+        return frames + String.format("%nlayout p50 %.3f p99 %.3f ms | %.2f layout passes per pulse",
+                toMillis(getLayoutPercentile(50)), toMillis(getLayoutPercentile(99)), getLayoutPassesPerPulse());
+    }
+
+    /**
+     * Writes a summary followed by the raw frame times in the current window, as CSV.
+     * @param file File to write to, replaced if it exists.
+     * @throws IOException If the file can't be written.
+     */
+    public void writeReport(Path file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("# pacing," + pacing);
+            out.println("# frames," + frameCount);
+            out.println("# achieved_hz," + getAchievedRate());
+            out.println("# gap_stddev_ms," + getGapStdDevNanos() / GameClock.NANOS_PER_MILLI);
+            out.println("# input_to_photon_estimate_ms," + toMillis(getInputToPhotonEstimateNanos()));
+            out.println("# missed_deadlines," + missedDeadlines);
+            out.println("# missed_with_slow_handle," + missedWithSlowHandle);
+            out.println("# max_gap_ms," + toMillis(maxGapNanos));
+            out.println("# max_handle_ms," + toMillis(maxHandleNanos));
+            for (int p : new int[] {50, 90, 99}) {
+                out.println("# gap_p" + p + "_ms," + toMillis(getGapPercentile(p)));
+                out.println("# handle_p" + p + "_ms," + toMillis(getHandlePercentile(p)));
+            }
+            if (layoutPulses > 0) {
+                for (int p : new int[] {50, 90, 99}) {
+                    out.println("# layout_p" + p + "_ms," + toMillis(getLayoutPercentile(p)));
+                }
+                out.println("# layout_passes_per_pulse," + getLayoutPassesPerPulse());
+            }
+            out.println("gap_ns,handle_ns");
+            // The first frame has no gap, so the gap window may be one shorter
+            int gaps = frameGaps.size();
+            int handles = handleTimes.size();
+            for (int i = 0; i < handles; i++) {
+                int gapIndex = i - (handles - gaps);
+                out.println((gapIndex >= 0 ? String.valueOf(frameGaps.get(gapIndex)) : "") + "," + handleTimes.get(i));
+            }
+        }
+    }
+
+    /*
+    Converts nanoseconds into milliseconds.
+     */
+    private static double toMillis(long nanos) {
+        return nanos / (double) GameClock.NANOS_PER_MILLI;
+    }
+
+    /*
+    Ring buffer of the last WINDOW_SIZE values, with a histogram of the same values kept alongside it
+    so percentiles can be read without sorting.
+     */
+    private static class RollingWindow {
+        private final long[] values = new long[WINDOW_SIZE];
+        private final int[] buckets = new int[BUCKET_COUNT];
+        private long written = 0;
+
+        void add(long value) {
+            int slot = (int) (written % WINDOW_SIZE);
+            if (written >= WINDOW_SIZE) buckets[bucket(values[slot])]--;
+            values[slot] = value;
+            buckets[bucket(value)]++;
+            written++;
+        }
+
+        void clear() {
+            written = 0;
+            Arrays.fill(buckets, 0);
+        }
+
+        int size() {
+            return (int) Math.min(written, WINDOW_SIZE);
+        }
+
+        // Index 0 is the oldest value in the window
+        long get(int index) {
+            return values[(int) ((written - size() + index) % WINDOW_SIZE)];
+        }
+
+        long percentile(double percentile) {
+            int n = size();
+            if (n == 0) return 0;
+            long rank = (long) Math.ceil(percentile / 100.0 * n);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += buckets[i];
+                if (seen >= rank) return (i + 1) * BUCKET_NANOS;   // Upper edge of the bucket
+            }
+            return BUCKET_COUNT * BUCKET_NANOS;
+        }
+
+        private static int bucket(long value) {
+            return (int) Math.min(Math.max(value, 0) / BUCKET_NANOS, BUCKET_COUNT - 1);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Monotonic timer built on {@link System#nanoTime()}. Replaces {@link SimpleTimer}, which reads the
+ * wall clock and drops the time between its two clock reads on every update.
+ *
+ * All state is held in primitive longs and nothing is allocated after construction, so it is safe to
+ * call from the game loop every frame. Every method that reads the clock has an overload taking a
+ * timestamp, which should be the {@code now} value given to {@code AnimationTimer.handle(long)} when
+ * called from the game loop (JavaFX pulse timestamps use the same clock as {@link System#nanoTime()}).
+ */
+public class GameClock {
+    // Constants
+    public static final long NANOS_PER_MILLI = 1_000_000L;
+    public static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final int MAX_LAPS = 64;
+
+    // Properties
+    private long accumulatedNanos = 0;  // Time banked from previous running periods
+    private long startNanos = 0;        // Timestamp the current running period started at
+    private boolean running = false;
+    private final long[] laps = new long[MAX_LAPS];
+    private int lapCount = 0;
+    private long lastLapNanos = 0;      // Elapsed time when the last lap was taken
+
+    /**
+     * Starts (or resumes) the clock now.
+     */
+    public void start() {
+        start(System.nanoTime());
+    }
+
+    /**
+     * Starts (or resumes) the clock from the given timestamp. Does nothing if already running.
+     * @param now Timestamp in nanoseconds, from {@link System#nanoTime()} or a pulse.
+     */
+    public void start(long now) {
+        if (running) return;
+        startNanos = now;
+        running = true;
+    }
+
+    /**
+     * Pauses the clock now, keeping the elapsed time.
+     */
+    public void pause() {
+        pause(System.nanoTime());
+    }
+
+    /**
+     * Pauses the clock at the given timestamp, keeping the elapsed time. Does nothing if already paused.
+     * @param now Timestamp in nanoseconds.
+     */
+    public void pause(long now) {
+        if (!running) return;
+        accumulatedNanos += now - startNanos;
+        running = false;
+    }
+
+    /**
+     * Stops the clock and clears the elapsed time and all laps.
+     */
+    public void reset() {
+        accumulatedNanos = 0;
+        startNanos = 0;
+        running = false;
+        lapCount = 0;
+        lastLapNanos = 0;
+    }
+
+    /**
+     * @return Whether the clock is currently running.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return Elapsed running time in nanoseconds, as of now.
+     */
+    public long getElapsedNanos() {
+        return getElapsedNanos(System.nanoTime());
+    }
+
+    /**
+     * @param now Timestamp in nanoseconds to measure up to.
+     * @return Elapsed running time in nanoseconds, as of the given timestamp.
+     */
+    public long getElapsedNanos(long now) {
+        return running ? accumulatedNanos + (now - startNanos) : accumulatedNanos;
+    }
+
+    /**
+     * @return Elapsed running time in milliseconds, as of now.
+     */
+    public double getElapsedMillis() {
+        return getElapsedNanos() / (double) NANOS_PER_MILLI;
+    }
+
+    /**
+     * @param now Timestamp in nanoseconds to measure up to.
+     * @return Elapsed running time in milliseconds, as of the given timestamp.
+     */
+    public double getElapsedMillis(long now) {
+        return getElapsedNanos(now) / (double) NANOS_PER_MILLI;
+    }
+
+    /**
+     * Records a lap split at the given timestamp. Once MAX_LAPS splits have been taken the last slot is
+     * overwritten, so this never allocates.
+     * @param now Timestamp in nanoseconds.
+     * @return Length of the lap in nanoseconds.
+     */
+    public long lap(long now) {
+        long elapsed = getElapsedNanos(now);
+        long split = elapsed - lastLapNanos;
+        lastLapNanos = elapsed;
+        laps[Math.min(lapCount, MAX_LAPS - 1)] = split;
+        if (lapCount < MAX_LAPS) lapCount++;
+        return split;
+    }
+
+    /**
+     * @return Number of laps recorded since the last reset.
+     */
+    public int getLapCount() {
+        return lapCount;
+    }
+
+    /**
+     * @param index Index of the lap, starting at 0.
+     * @return Length of the lap in nanoseconds.
+     */
+    public long getLapNanos(int index) {
+        if (index < 0 || index >= lapCount) throw new IndexOutOfBoundsException("No lap " + index);
+        return laps[index];
+    }
+}
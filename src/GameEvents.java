@@ -0,0 +1,204 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Frequency;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder events of the games, to record what happens in real sessions and look at it
+ * afterwards with the usual JFR tools, e.g.
+ *   java -XX:StartFlightRecording:filename=session.jfr ... Main
+ *   jfr print --events mouseskills.* session.jfr
+ *
+ * Nothing is written unless a recording is running. The game loop checks that frame events are enabled
+ * before creating one, see {@link FrameStats}, so without a recording it allocates nothing for them and
+ * the games run as they would without them. None of the events take a stack trace.
+ */
+public final class GameEvents {
+    // Constants
+    public static final String PREFIX = "mouseskills.";
+    private static final String CATEGORY = "MouseSkills";
+
+    private GameEvents() {
+    }
+
+    /**
+     * A frame of a game loop. Frames that miss a deadline are always recorded, the rest are sampled
+     * every {@link FrameStats#FRAME_EVENT_INTERVAL} frames.
+     */
+    @Name(PREFIX + "Frame")
+    @Label("Frame")
+    @Category({CATEGORY, "Game loop"})
+    @Description("A sampled or late frame of a game loop")
+    @StackTrace(false)
+    public static class Frame extends Event {
+        @Label("Frame Number")
+        public long frame;
+
+        @Label("Gap")
+        @Description("Time since the previous pulse")
+        @Timespan(Timespan.NANOSECONDS)
+        public long gap;
+
+        @Label("Handle Time")
+        @Description("Time the game loop's handle() took")
+        @Timespan(Timespan.NANOSECONDS)
+        public long handle;
+
+        @Label("Missed Deadlines")
+        @Description("Frame deadlines of the frame pacing missed before this frame")
+        public long missedDeadlines;
+    }
+
+    /**
+     * A finished run of the hover game, lasting from the start of the run to its end.
+     */
+    @Name(PREFIX + "TraceRun")
+    @Label("Hover Game Run")
+    @Category({CATEGORY, "Hover game"})
+    @Description("Settings and score of a finished hover game run")
+    @StackTrace(false)
+    public static class TraceRun extends Event {
+        @Label("Ball Speed")
+        public int ballSpeed;
+
+        @Label("Ball Radius")
+        public int ballRadius;
+
+        @Label("Runtime")
+        @Timespan(Timespan.MILLISECONDS)
+        public long runtime;
+
+        @Label("Decoys")
+        public int decoys;
+
+        @Label("Seed")
+        public long seed;
+
+        @Label("Path Style")
+        public String pathStyle;
+
+        @Label("Agent")
+        @Description("Bot playing instead of the mouse, null for a player")
+        public String agent;
+
+        @Label("Time on Ball")
+        @Timespan(Timespan.NANOSECONDS)
+        public long timeOnBall;
+
+        @Label("Time on Decoys")
+        @Timespan(Timespan.NANOSECONDS)
+        public long timeOnDecoys;
+
+        @Label("RMS Error")
+        @Description("Root mean square distance from the ball, in pixels")
+        public double rmsError;
+
+        @Label("Missed Deadlines")
+        public long missedDeadlines;
+
+        @Label("Frame Pacing")
+        public String framePacing;
+
+        @Label("Achieved Frame Rate")
+        @Frequency
+        public double achievedRate;
+
+        @Label("Frame Time Standard Deviation")
+        @Timespan(Timespan.NANOSECONDS)
+        public long frameTimeStdDev;
+
+        @Label("Input to Photon Estimate")
+        @Description("Estimated time from a mouse move to the display showing it, see FramePacing")
+        @Timespan(Timespan.NANOSECONDS)
+        public long inputToPhoton;
+    }
+
+    /**
+     * The reaction game moving from one state to another.
+     */
+    @Name(PREFIX + "ReactionState")
+    @Label("Reaction State Change")
+    @Category({CATEGORY, "Reaction game"})
+    @StackTrace(false)
+    public static class ReactionState extends Event {
+        @Label("From")
+        public String from;
+
+        @Label("To")
+        public String to;
+    }
+
+    /**
+     * A finished reaction trial.
+     */
+    @Name(PREFIX + "ReactionTrial")
+    @Label("Reaction Trial")
+    @Category({CATEGORY, "Reaction game"})
+    @Description("Stimulus delay, reaction time and early clicks of a reaction trial")
+    @StackTrace(false)
+    public static class ReactionTrial extends Event {
+        @Label("Trial")
+        @Description("Number of the trial in its session, 0 outside a session")
+        public int trial;
+
+        @Label("Stimulus Delay")
+        @Description("Wait before the green screen")
+        @Timespan(Timespan.NANOSECONDS)
+        public long delay;
+
+        @Label("Stimulus Offset")
+        @Description("How far from its target time the green screen was shown")
+        @Timespan(Timespan.NANOSECONDS)
+        public long stimulusOffset;
+
+        @Label("Reaction Time")
+        @Description("Time from the pulse showing the green screen to the press reaching the scene's event filter")
+        @Timespan(Timespan.NANOSECONDS)
+        public long reaction;
+
+        @Label("Dispatch Delay")
+        @Description("Time from the press reaching the scene's event filter to the game's press handler, "
+                + "taken out of the reaction time, -1 if unknown")
+        @Timespan(Timespan.NANOSECONDS)
+        public long dispatchDelay;
+
+        @Label("Early Clicks")
+        public int earlyClicks;
+    }
+
+    /**
+     * A phase of startup being reached, all committed together once the menu's first frame is done.
+     */
+    @Name(PREFIX + "StartupPhase")
+    @Label("Startup Phase")
+    @Category({CATEGORY, "Startup"})
+    @Description("A phase of startup and how long after the JVM started it was reached")
+    @StackTrace(false)
+    public static class StartupPhase extends Event {
+        @Label("Phase")
+        public String phase;
+
+        @Label("Since JVM Start")
+        @Timespan(Timespan.MILLISECONDS)
+        public long sinceJvmStart;
+    }
+
+    /**
+     * The window switching from one screen to another, lasting as long as the switch took.
+     */
+    @Name(PREFIX + "ScreenSwitch")
+    @Label("Screen Switch")
+    @Category({CATEGORY, "Screens"})
+    @StackTrace(false)
+    public static class ScreenSwitch extends Event {
+        @Label("From")
+        public String from;
+
+        @Label("To")
+        public String to;
+    }
+}
@@ -0,0 +1,29 @@
+/**
+ * A game shown on the {@link Menu}, found by {@link GameRegistry} through {@link java.util.ServiceLoader}.
+ *
+ * Modules are descriptors only: the menu needs nothing but the name, so implementations must not touch
+ * the game's own classes until getScreen() is called. That way a game costs nothing at startup and is
+ * loaded when it is first picked, or by the registry's pre-warm thread once the menu is up.
+ *
+ * To add a game, implement this interface and list the class in META-INF/services/GameModule.
+ */
+public interface GameModule {
+
+    /**
+     * @return Name shown on the game's menu button.
+     */
+    String getName();
+
+    /**
+     * @return Position on the menu, lower comes first.
+     */
+    int getMenuOrder();
+
+    /**
+     * Gets the game's screen, creating it on the first call. May be called from the pre-warm thread, so
+     * the screen's constructor mustn't touch anything already showing.
+     * @param screens Manager that keeps the screen.
+     * @return The game's screen.
+     */
+    Screen getScreen(ScreenManager screens);
+}
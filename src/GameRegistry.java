@@ -0,0 +1,61 @@
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * The games on offer, found with {@link ServiceLoader} so the menu doesn't need to know about any of
+ * them. Only the {@link GameModule} descriptors are loaded up front.
+ *
+ * Once the first frame is on screen, prewarm() loads each game in the background: the screen is created
+ * on a low priority thread, which loads and initialises the game's classes, then its scene is built on
+ * the JavaFX thread. Picking a game before it has been pre-warmed just loads it there and then. Run with
+ * -Dmouseskills.prewarm=false to turn pre-warming off, e.g. to measure the cost of the first pick.
+ */
+public class GameRegistry {
+    // Constants
+    private static final String PREWARM_PROPERTY = "mouseskills.prewarm";
+
+    // Properties
+    private final List<GameModule> modules;
+
+    /**
+     * Finds every game listed in META-INF/services/GameModule.
+     */
+    public GameRegistry() {
+        List<GameModule> found = new ArrayList<>();
+        for (GameModule module : ServiceLoader.load(GameModule.class, GameModule.class.getClassLoader())) {
+            found.add(module);
+        }
+        found.sort(Comparator.comparingInt(GameModule::getMenuOrder));
+        modules = Collections.unmodifiableList(found);
+    }
+
+    /**
+     * @return Every game, in menu order.
+     */
+    public List<GameModule> getModules() {
+        return modules;
+    }
+
+    /**
+     * Loads every game in the background, unless turned off with PREWARM_PROPERTY.
+     * @param screens Manager to keep the games' screens in.
+     */
+    public void prewarm(ScreenManager screens) {
+        if ("false".equals(System.getProperty(PREWARM_PROPERTY))) return;
+
+        Thread thread = new Thread(() -> {
+            for (GameModule module : modules) {
+                Screen screen = module.getScreen(screens);
+                Platform.runLater(screen::getScene);
+            }
+        }, "game-prewarm");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+}
@@ -0,0 +1,71 @@
+import javafx.geometry.Pos;
+import javafx.scene.layout.HBox;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+
+/**
+ * Label showing a fixed prefix followed by a fixed-point number, e.g. "Time left: 12.34", that can be
+ * updated every frame without creating garbage.
+ *
+ * Each character of the number has its own {@link Text} cell. A new value is formatted into a reused
+ * {@link FixedPointText} and only the cells whose character changed are updated, using cached single
+ * character strings, so nothing happens at all while the visible digits stay the same.
+ */
+public class HudLabel extends HBox {
+    // Constants
+    private static final String[] CHAR_STRINGS = new String[128];
+    static {
+        for (char c = 0; c < CHAR_STRINGS.length; c++) {
+            CHAR_STRINGS[c] = String.valueOf(c);
+        }
+    }
+    private static final char EMPTY_CELL = 0;
+
+    // Properties
+    private final Text[] cells;
+    private final char[] shown;         // Character shown in each cell, EMPTY_CELL if none
+    private final FixedPointText text = new FixedPointText(24);
+    private final int decimals;
+    private long shownValue;
+    private boolean hasValue = false;
+
+    /**
+     * @param prefix Text shown before the number.
+     * @param cellCount Most characters the number can take up, longer numbers are cut off.
+     * @param decimals Number of digits after the point.
+     * @param font Font for the prefix and number.
+     */
+    public HudLabel(String prefix, int cellCount, int decimals, Font font) {
+        this.decimals = decimals;
+        cells = new Text[cellCount];
+        shown = new char[cellCount];
+
+        Text prefixText = new Text(prefix);
+        prefixText.setFont(font);
+        getChildren().add(prefixText);
+        for (int i = 0; i < cellCount; i++) {
+            cells[i] = new Text();
+            cells[i].setFont(font);
+            getChildren().add(cells[i]);
+        }
+        setAlignment(Pos.BASELINE_LEFT);
+    }
+
+    /**
+     * Shows the given value. Does nothing if it is the value already shown.
+     * @param scaledValue Value scaled up by 10^decimals, e.g. hundredths of a second for 2 decimals.
+     */
+    public void setValue(long scaledValue) {
+        if (hasValue && scaledValue == shownValue) return;
+        shownValue = scaledValue;
+        hasValue = true;
+
+        text.clear().appendFixed(scaledValue, decimals);
+        for (int i = 0; i < cells.length; i++) {
+            char c = i < text.length() ? text.charAt(i) : EMPTY_CELL;
+            if (c == shown[i]) continue;
+            shown[i] = c;
+            cells[i].setText(c == EMPTY_CELL ? "" : CHAR_STRINGS[c]);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Preallocated ring buffer of input timings for {@link ReactionGame}. Each entry holds three
+ * timestamps in nanoseconds:
+ *  - event: when the mouse press reached the scene's event filter (earliest point JavaFX exposes)
+ *  - dispatch: when the game's press handler ran for that same press
+ *  - stimulus: the pulse timestamp of the frame the green screen was shown on
+ *
+ * The difference between dispatch and event is the time JavaFX took to dispatch the press to the game,
+ * not reaction time, so it is left out of the player's score, and the game shows its mean over the
+ * entries held. Both are read on the FX thread, so a stall before the press reaches the scene can't be
+ * seen and still counts as reaction time.
+ *
+ * Once full, the oldest entries are overwritten. Nothing is allocated after construction.
+ */
+public class InputLatencyBuffer {
+    // Properties
+    private final long[] eventNanos;
+    private final long[] dispatchNanos;
+    private final long[] stimulusNanos;
+    private final int mask;
+    private long written = 0;   // Total entries ever recorded
+
+    /**
+     * Creates a buffer holding at least the given number of entries (rounded up to a power of two).
+     * @param capacity Minimum number of entries to keep.
+     */
+    public InputLatencyBuffer(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        eventNanos = new long[size];
+        dispatchNanos = new long[size];
+        stimulusNanos = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Records one input.
+     * @param event Timestamp the input reached the scene.
+     * @param dispatch Timestamp the input was handled.
+     * @param stimulus Pulse timestamp of the frame the stimulus was shown on.
+     */
+    public void record(long event, long dispatch, long stimulus) {
+        int slot = (int) (written & mask);
+        eventNanos[slot] = event;
+        dispatchNanos[slot] = dispatch;
+        stimulusNanos[slot] = stimulus;
+        written++;
+    }
+
+    /**
+     * @return Number of entries currently held.
+     */
+    public int size() {
+        return (int) Math.min(written, mask + 1);
+    }
+
+    /**
+     * @return Maximum number of entries held before the oldest is overwritten.
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Clears all entries.
+     */
+    public void clear() {
+        written = 0;
+    }
+
+    /**
+     * @param index Entry index, 0 being the oldest entry held.
+     * @return Timestamp the input reached the scene.
+     */
+    public long getEventNanos(int index) {
+        return eventNanos[slot(index)];
+    }
+
+    /**
+     * @param index Entry index, 0 being the oldest entry held.
+     * @return Timestamp the input was handled.
+     */
+    public long getDispatchNanos(int index) {
+        return dispatchNanos[slot(index)];
+    }
+
+    /**
+     * @param index Entry index, 0 being the oldest entry held.
+     * @return Pulse timestamp of the frame the stimulus was shown on.
+     */
+    public long getStimulusNanos(int index) {
+        return stimulusNanos[slot(index)];
+    }
+
+    /**
+     * @param index Entry index, 0 being the oldest entry held.
+     * @return Time between the input reaching the scene and being handled.
+     */
+    public long getDispatchDelayNanos(int index) {
+        int slot = slot(index);
+        return dispatchNanos[slot] - eventNanos[slot];
+    }
+
+    /**
+     * @return Mean dispatch delay in milliseconds over the entries held, 0 if empty.
+     */
+    public double getMeanDispatchDelayMillis() {
+        int n = size();
+        if (n == 0) return 0;
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            total += getDispatchDelayNanos(i);
+        }
+        return total / (double) n / GameClock.NANOS_PER_MILLI;
+    }
+
+    /*
+    Maps an index from the oldest entry held to a slot in the arrays.
+     */
+    private int slot(int index) {
+        int n = size();
+        if (index < 0 || index >= n) throw new IndexOutOfBoundsException("No entry " + index);
+        return (int) ((written - n + index) & mask);
+    }
+}
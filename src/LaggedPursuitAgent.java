@@ -0,0 +1,82 @@
+import java.util.SplittableRandom;
+
+/**
+ * Agent that chases the ball roughly the way a person does: it sees the ball as it was a reaction time
+ * ago, closes only part of the gap each step, and its hand shakes.
+ *
+ * Past ball positions are kept in a ring buffer allocated up front, and the shake is Gaussian noise
+ * from a generator seeded by the run, so ticking doesn't allocate and runs are repeatable.
+ */
+public class LaggedPursuitAgent implements MouseAgent {
+    // Constants
+    private static final long SEED_SALT = 0x9E3779B97F4A7C15L;  // Keeps the agent's numbers apart from the path's
+    public static final int DEFAULT_LAG_STEPS = 6;      // 100 ms at 60 steps a second
+    public static final double DEFAULT_GAIN = 0.2;
+    public static final double DEFAULT_NOISE = 2;
+
+    // Properties
+    private final int lagSteps;
+    private final double gain;
+    private final double noise;
+    private final double[] pastX, pastY;    // Ring buffer of the ball positions over the last lagSteps steps
+    private SplittableRandom random = new SplittableRandom();
+    private int next = 0;
+    private boolean started = false;
+    private double mouseX, mouseY;
+
+    /**
+     * Creates an agent with a reaction time of DEFAULT_LAG_STEPS, closing DEFAULT_GAIN of the gap a step
+     * with DEFAULT_NOISE px of shake.
+     */
+    public LaggedPursuitAgent() {
+        this(DEFAULT_LAG_STEPS, DEFAULT_GAIN, DEFAULT_NOISE);
+    }
+
+    /**
+     * @param lagSteps Steps between the ball being somewhere and the agent seeing it there.
+     * @param gain Share of the distance to the ball, as seen, closed each step, between 0 and 1.
+     * @param noise Standard deviation in px of the shake added to the mouse each step.
+     */
+    public LaggedPursuitAgent(int lagSteps, double gain, double noise) {
+        if (lagSteps < 0 || gain <= 0 || gain > 1 || noise < 0) {
+            throw new IllegalArgumentException("Bad pursuit settings: " + lagSteps + ", " + gain + ", " + noise);
+        }
+        this.lagSteps = lagSteps;
+        this.gain = gain;
+        this.noise = noise;
+        pastX = new double[lagSteps + 1];
+        pastY = new double[lagSteps + 1];
+    }
+
+    @Override
+    public void reset(long seed) {
+        random = new SplittableRandom(seed ^ SEED_SALT);
+        next = 0;
+        started = false;
+    }
+
+    @Override
+    public void tick(TraceSimulation simulation) {
+        // Start on the ball with a history of it standing still
+        if (!started) {
+            for (int i = 0; i < pastX.length; i++) {
+                pastX[i] = simulation.getBallX();
+                pastY[i] = simulation.getBallY();
+            }
+            mouseX = simulation.getBallX();
+            mouseY = simulation.getBallY();
+            started = true;
+        }
+
+        // The oldest position in the buffer is the one seen now, the new one replaces it
+        pastX[next] = simulation.getBallX();
+        pastY[next] = simulation.getBallY();
+        next = (next + 1) % pastX.length;
+        double seenX = pastX[next];
+        double seenY = pastY[next];
+
+        mouseX += (seenX - mouseX) * gain + random.nextGaussian() * noise;
+        mouseY += (seenY - mouseY) * gain + random.nextGaussian() * noise;
+        simulation.setMousePosition(mouseX, mouseY);
+    }
+}
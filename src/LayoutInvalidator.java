@@ -0,0 +1,71 @@
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.scene.Scene;
+
+/**
+ * Collapses every change to a scene's size into one layout recompute on the next pulse.
+ *
+ * Dragging a window edge changes the scene's width and height many times between two frames, and work
+ * done on each change is thrown away by the next. Instead the size properties only mark the layout
+ * invalid and ask for a pulse, and just before that pulse's CSS and layout pass the callback is run
+ * once with the final size. Invalidation listeners are used rather than change listeners, so the size
+ * isn't even read until the pulse.
+ */
+public class LayoutInvalidator {
+    /**
+     * Lays the screen out for a scene size.
+     */
+    @FunctionalInterface
+    public interface Layout {
+        void layout(double width, double height);
+    }
+
+    // Properties
+    private final Scene scene;
+    private final Layout layout;
+    private boolean invalid = false;
+    private long layoutCount = 0;
+
+    /**
+     * Starts watching the scene's size. The callback isn't run for the scene's current size, the caller
+     * lays out the first frame itself.
+     * @param scene Scene whose size is watched.
+     * @param layout Called at most once a pulse, on the FX thread, after the size has changed.
+     */
+    public LayoutInvalidator(Scene scene, Layout layout) {
+        this.scene = scene;
+        this.layout = layout;
+
+        InvalidationListener sizeListener = observable -> invalidate();
+        scene.widthProperty().addListener(sizeListener);
+        scene.heightProperty().addListener(sizeListener);
+        scene.addPreLayoutPulseListener(this::layoutIfInvalid);
+    }
+
+    /**
+     * Marks the layout as needing a recompute on the next pulse, however many times it is called before then.
+     */
+    public void invalidate() {
+        if (invalid) return;
+        invalid = true;
+        Platform.requestNextPulse();
+    }
+
+    /**
+     * @return Number of times the layout has been recomputed.
+     */
+    public long getLayoutCount() {
+        return layoutCount;
+    }
+
+    /*
+    Runs the layout callback if the size has changed since the last pulse. Reading the size revalidates
+    the properties, so the next change invalidates them again.
+     */
+    private void layoutIfInvalid() {
+        if (!invalid) return;
+        invalid = false;
+        layoutCount++;
+        layout.layout(scene.getWidth(), scene.getHeight());
+    }
+}
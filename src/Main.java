@@ -4,10 +4,19 @@ import javafx.stage.Stage;
 public class Main extends Application {
     @Override
     public void start(Stage primaryStage) throws Exception {
+        StartupTiming.mark("fx start");
+        // Load past results in the background, the FX thread never waits for them
+        ResultsStore.openDefault();
         primaryStage.setResizable(true);
         primaryStage.setTitle("Mouse skills");
-        primaryStage.setScene(new Menu().createScene(primaryStage));
+        GameRegistry games = new GameRegistry();
+        StartupTiming.mark("games found");
+        ScreenManager screens = new ScreenManager(primaryStage, games);
+        screens.show(screens.menu());
         primaryStage.show();
+        StartupTiming.mark("menu shown");
+        // Load the games and past results once the menu is up rather than before it
+        StartupTiming.reportOnFirstFrame(primaryStage.getScene(), () -> games.prewarm(screens));
     }
 
     /**
@@ -15,6 +24,9 @@ public class Main extends Application {
      * @param args Command line arguments.
      */
     public static void main(String[] args) {
+        StartupTiming.mark("main");
+        // JavaFX reads its pulse and vsync settings as it starts
+        FramePacing.current().apply();
         launch(args);
     }
 }
@@ -4,16 +4,27 @@ import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Font;
-import javafx.stage.Stage;
 
-public class Menu {
+public class Menu implements Screen {
+    // Properties
+    private final ScreenManager screens;
+    private Scene scene = null;
 
     /**
-     * Creates the menu scene.
-     * @param stage Stage the program is using.
+     * @param screens Manager used to open the games.
+     */
+    public Menu(ScreenManager screens) {
+        this.screens = screens;
+    }
+
+    /**
+     * Creates the menu scene on the first call.
      * @return Scene containing the menu GUI.
      */
-    public Scene createScene(Stage stage) {
+    @Override
+    public Scene getScene() {
+        if (scene != null) return scene;
+
         // Create the parent layout and the scene
         VBox root = new VBox();
 
@@ -21,26 +32,20 @@ public class Menu {
         Label title = new Label("Menu");
         title.setFont(new Font("Verdana", 20));
 
-        // Create a button for the reaction test
-        Button reactionTestButton = new Button("Reaction test");
-        reactionTestButton.setPrefSize(150, 40);
-        reactionTestButton.setOnAction(event -> {
-            stage.setScene(new ReactionGame().createScene());
-        });
-
-        // Create a button for the trace test
-        Button traceTestButton = new Button("Trace test");
-        traceTestButton.setPrefSize(150, 40);
-        traceTestButton.setOnAction(event -> {
-            stage.setScene(new TraceGame().createScene(stage));
-        });
-
-        // Center everything in the VBox, set the spacing between elements and add all the elements
-        // to the layout.
+        // Center everything in the VBox, set the spacing between elements and add the title
         root.alignmentProperty().setValue(Pos.CENTER);
         root.setSpacing(10);
-        root.getChildren().addAll(title, reactionTestButton, traceTestButton);
+        root.getChildren().add(title);
+
+        // Create a button for each game, the game itself is only loaded when it's first picked
+        for (GameModule game : screens.getGames().getModules()) {
+            Button gameButton = new Button(game.getName());
+            gameButton.setPrefSize(150, 40);
+            gameButton.setOnAction(event -> screens.show(game.getScreen(screens)));
+            root.getChildren().add(gameButton);
+        }
 
-        return new Scene(root, 300, 300);
+        scene = new Scene(root, 300, 300);
+        return scene;
     }
-}
\ No newline at end of file
+}
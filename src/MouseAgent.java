@@ -0,0 +1,41 @@
+/**
+ * Moves the mouse in a {@link TraceSimulation} instead of a player, so scoring and ball movement can be
+ * checked without anyone at the mouse. See {@link AgentRunner} for running many agents at once.
+ *
+ * Before every step the simulation calls tick(), where the agent reads the ball and sets the mouse
+ * position with {@link TraceSimulation#setMousePosition(double, double)}. Agents are stepped many
+ * thousands of times a second, so tick() shouldn't allocate. Any randomness must come from the seed
+ * given to reset(), so a run with the same seed and agent always scores the same.
+ */
+public interface MouseAgent {
+
+    /**
+     * Starts the agent again for a new run.
+     * @param seed Seed of the run.
+     */
+    void reset(long seed);
+
+    /**
+     * Sets the mouse position for the coming step.
+     * @param simulation Simulation being played.
+     */
+    void tick(TraceSimulation simulation);
+
+    /**
+     * Creates one of the reference agents.
+     * @param name "perfect", "lagged" or "random".
+     * @throws IllegalArgumentException If there is no agent with that name.
+     */
+    static MouseAgent named(String name) {
+        switch (name) {
+            case "perfect":
+                return new PerfectAgent();
+            case "lagged":
+                return new LaggedPursuitAgent();
+            case "random":
+                return new RandomWalkAgent();
+            default:
+                throw new IllegalArgumentException("Unknown agent: " + name + ", expected perfect, lagged or random");
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.Circle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link TraceRenderer} drawing with retained scene graph nodes, one {@link Circle} for the ball, the
+ * cursor and each decoy. Decoy circles are pooled and hidden when not needed rather than removed.
+ *
+ * Simple and cheap for a handful of shapes, but every circle is a node that has to be synced and
+ * rendered each pulse, so {@link CanvasTraceRenderer} holds up better with many decoys.
+ */
+public class NodeTraceRenderer implements TraceRenderer {
+    // Properties
+    private final Group root = new Group();
+    private final Group decoyGroup = new Group();
+    private final List<Circle> decoyPool = new ArrayList<>();   // Reused circles, one per decoy drawn
+    private final Circle ball = new Circle();
+    private final Circle cursor = new Circle();
+    private int decoysDrawn = 0;
+    private boolean ballDrawn = false;
+    private boolean cursorDrawn = false;
+
+    public NodeTraceRenderer() {
+        root.setMouseTransparent(true);
+        root.getChildren().addAll(decoyGroup, ball, cursor);
+        ball.setVisible(false);
+        cursor.setVisible(false);
+    }
+
+    @Override
+    public Node getNode() {
+        return root;
+    }
+
+    @Override
+    public void setPlayArea(double left, double top, double right, double bottom) {
+        // Nodes are positioned in scene coordinates, so there's nothing to resize
+    }
+
+    @Override
+    public void beginFrame() {
+        decoysDrawn = 0;
+        ballDrawn = false;
+        cursorDrawn = false;
+    }
+
+    @Override
+    public void drawBall(double x, double y, double radius, Paint fill) {
+        place(ball, x, y, radius, fill);
+        ballDrawn = true;
+    }
+
+    @Override
+    public void drawDecoys(TargetField decoys, double interpolation, Paint fill) {
+        int count = decoys.getCount();
+        while (decoyPool.size() < count) {
+            Circle decoy = new Circle();
+            decoyPool.add(decoy);
+            decoyGroup.getChildren().add(decoy);
+        }
+        for (int i = 0; i < count; i++) {
+            place(decoyPool.get(i), decoys.getRenderX(i, interpolation), decoys.getRenderY(i, interpolation),
+                    decoys.getRadius(), fill);
+        }
+        decoysDrawn = count;
+    }
+
+    @Override
+    public void drawCursor(double x, double y, double radius, Paint fill) {
+        place(cursor, x, y, radius, fill);
+        cursorDrawn = true;
+    }
+
+    @Override
+    public void endFrame() {
+        if (!ballDrawn && ball.isVisible()) ball.setVisible(false);
+        if (!cursorDrawn && cursor.isVisible()) cursor.setVisible(false);
+        for (int i = decoysDrawn; i < decoyPool.size(); i++) {
+            Circle decoy = decoyPool.get(i);
+            if (decoy.isVisible()) decoy.setVisible(false);
+        }
+    }
+
+    /*
+    Shows the circle with the given position and style. Properties only fire when their value changes, so
+    setting them all every frame only costs anything when something moved.
+     */
+    private static void place(Circle c, double x, double y, double radius, Paint fill) {
+        if (!c.isVisible()) c.setVisible(true);
+        c.setCenterX(x);
+        c.setCenterY(y);
+        c.setRadius(radius);
+        c.setFill(fill);
+    }
+}
@@ -0,0 +1,63 @@
+import javafx.scene.paint.Color;
+
+/**
+ * A looping sequence of colours, each shown for the same time, precomputed so the colour at any moment
+ * is found by dividing the elapsed time and indexing an array. Used by {@link ColorAnimator}.
+ */
+public class Palette {
+    // Constants
+    public static final long RGB_STEP_NANOS = GameClock.NANOS_PER_SECOND / 4;
+    public static final long HUE_CYCLE_NANOS = 3 * GameClock.NANOS_PER_SECOND;
+    private static final int HUE_STEPS = 360;
+
+    // Properties
+    private final Color[] colors;
+    private final long stepNanos;
+
+    /**
+     * @param stepNanos How long each colour is shown.
+     * @param colors The colours in order, the first following on from the last.
+     */
+    public Palette(long stepNanos, Color... colors) {
+        if (stepNanos <= 0 || colors.length == 0) throw new IllegalArgumentException("A palette needs colours and a step");
+        this.stepNanos = stepNanos;
+        this.colors = colors.clone();
+    }
+
+    /**
+     * @return Red, green then blue, each for RGB_STEP_NANOS.
+     */
+    public static Palette steppedRGB() {
+        return new Palette(RGB_STEP_NANOS, Color.RED, Color.GREEN, Color.BLUE);
+    }
+
+    /**
+     * @return Every fully saturated hue in turn, going round the colour wheel every HUE_CYCLE_NANOS in
+     * steps of a degree.
+     */
+    public static Palette hueCycle() {
+        Color[] hues = new Color[HUE_STEPS];
+        for (int i = 0; i < HUE_STEPS; i++) hues[i] = Color.hsb(i * 360.0 / HUE_STEPS, 1, 1);
+        return new Palette(HUE_CYCLE_NANOS / HUE_STEPS, hues);
+    }
+
+    /**
+     * @param elapsedNanos Time since the palette started, may be negative.
+     * @return Index of the colour shown at that time.
+     */
+    public int indexAt(long elapsedNanos) {
+        return (int) Math.floorMod(Math.floorDiv(elapsedNanos, stepNanos), (long) colors.length);
+    }
+
+    public Color getColor(int index) {
+        return colors[index];
+    }
+
+    public int size() {
+        return colors.length;
+    }
+
+    public long getStepNanos() {
+        return stepNanos;
+    }
+}
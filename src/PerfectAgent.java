@@ -0,0 +1,14 @@
+/**
+ * Agent that always has the mouse on the centre of the ball, so it should score the whole run.
+ */
+public class PerfectAgent implements MouseAgent {
+
+    @Override
+    public void reset(long seed) {
+    }
+
+    @Override
+    public void tick(TraceSimulation simulation) {
+        simulation.setMousePosition(simulation.getBallX(), simulation.getBallY());
+    }
+}
@@ -0,0 +1,209 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Bounded-memory histogram of non-negative long values (e.g. times in nanoseconds) for estimating
+ * quantiles, in the style of an HDR histogram.
+ *
+ * Values below SUB_BUCKETS each get their own bucket. Above that, every power of two is split into
+ * SUB_BUCKETS equal buckets, so any quantile is within 1 part in 2 * SUB_BUCKETS (under 1%) of the true
+ * value whatever its size. Recording is O(1), and two sketches merge by adding their bucket counts, so
+ * sketches from separate sessions combine without the raw values.
+ *
+ * The buckets are grouped in ranges of SUB_BUCKETS, one for the exact buckets and one for each power of
+ * two, and a range's counts are only allocated the first time a value falls in it. Scores of one kind
+ * span a few powers of two, so a sketch takes around a kilobyte rather than every bucket, and recording
+ * only allocates the first time a range is used. Resetting keeps the ranges.
+ */
+public class QuantileSketch {
+    // Constants
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Exact buckets, then one range for each shift from 0 until the top bit of a positive long
+    private static final int RANGES = 1 + 63 - SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = RANGES * SUB_BUCKETS;
+
+    /**
+     * A sketch with nothing recorded, which can't be changed, for when there is nothing to show.
+     */
+    public static final QuantileSketch EMPTY = new QuantileSketch(true);
+
+    // Properties
+    private final long[][] counts = new long[RANGES][];     // Counts of each range, null until used
+    private final boolean frozen;
+    private long count = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+
+    public QuantileSketch() {
+        this(false);
+    }
+
+    private QuantileSketch(boolean frozen) {
+        this.frozen = frozen;
+    }
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     */
+    public void record(long value) {
+        checkNotFrozen();
+        if (value < 0) value = 0;
+        add(bucketOf(value), 1);
+        count++;
+        if (value < min) min = value;
+        if (value > max) max = value;
+    }
+
+    /**
+     * Adds every value recorded by another sketch to this one.
+     */
+    public void merge(QuantileSketch other) {
+        checkNotFrozen();
+        for (int range = 0; range < RANGES; range++) {
+            long[] otherCounts = other.counts[range];
+            if (otherCounts == null) continue;
+            for (int i = 0; i < SUB_BUCKETS; i++) {
+                if (otherCounts[i] != 0) add(range * SUB_BUCKETS + i, otherCounts[i]);
+            }
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Forgets every recorded value.
+     */
+    public void reset() {
+        checkNotFrozen();
+        for (long[] rangeCounts : counts) {
+            if (rangeCounts != null) Arrays.fill(rangeCounts, 0);
+        }
+        count = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * @param quantile Quantile to find, 0 to 1, e.g. 0.99 for the 99th percentile.
+     * @return Estimate of the value at the quantile, 0 if nothing has been recorded.
+     */
+    public long getQuantile(double quantile) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int range = 0; range < RANGES; range++) {
+            long[] rangeCounts = counts[range];
+            if (rangeCounts == null) continue;
+            for (int i = 0; i < SUB_BUCKETS; i++) {
+                seen += rangeCounts[i];
+                if (seen >= rank) {
+                    // Middle of the bucket, kept within the values actually recorded
+                    int bucket = range * SUB_BUCKETS + i;
+                    long middle = bucketLow(bucket) + (bucketHigh(bucket) - bucketLow(bucket)) / 2;
+                    return Math.min(Math.max(middle, min), max);
+                }
+            }
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return Smallest value recorded, 0 if nothing has been recorded.
+     */
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Writes the sketch, only storing the buckets in use.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        int used = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) if (countOf(i) != 0) used++;
+        out.writeLong(min);
+        out.writeLong(max);
+        out.writeInt(used);
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long n = countOf(i);
+            if (n == 0) continue;
+            out.writeShort(i);
+            out.writeLong(n);
+        }
+    }
+
+    /**
+     * Reads a sketch written by writeTo().
+     * @throws IOException If it can't be read or isn't a sketch.
+     */
+    public static QuantileSketch readFrom(DataInput in) throws IOException {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.min = in.readLong();
+        sketch.max = in.readLong();
+        int used = in.readInt();
+        for (int i = 0; i < used; i++) {
+            int bucket = in.readUnsignedShort();
+            if (bucket >= BUCKET_COUNT) throw new IOException("Bad sketch bucket " + bucket);
+            long n = in.readLong();
+            sketch.add(bucket, n);
+            sketch.count += n;
+        }
+        return sketch;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) throw new UnsupportedOperationException("The empty sketch can't be changed");
+    }
+
+    /*
+    Adds to the count of a bucket, allocating its range if this is the range's first value.
+     */
+    private void add(int bucket, long n) {
+        long[] rangeCounts = counts[bucket >> SUB_BUCKET_BITS];
+        if (rangeCounts == null) {
+            rangeCounts = new long[SUB_BUCKETS];
+            counts[bucket >> SUB_BUCKET_BITS] = rangeCounts;
+        }
+        rangeCounts[bucket & (SUB_BUCKETS - 1)] += n;
+    }
+
+    private long countOf(int bucket) {
+        long[] rangeCounts = counts[bucket >> SUB_BUCKET_BITS];
+        return rangeCounts == null ? 0 : rangeCounts[bucket & (SUB_BUCKETS - 1)];
+    }
+
+    /*
+    Index of the bucket holding the value: the value itself below SUB_BUCKETS, otherwise worked out from
+    the position of the top bit and the SUB_BUCKET_BITS below it.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    private static long bucketLow(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = (bucket - SUB_BUCKETS) >> SUB_BUCKET_BITS;
+        long subBucket = (bucket & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+        return subBucket << shift;
+    }
+
+    private static long bucketHigh(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = (bucket - SUB_BUCKETS) >> SUB_BUCKET_BITS;
+        return bucketLow(bucket) + (1L << shift) - 1;
+    }
+}
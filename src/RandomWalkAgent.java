@@ -0,0 +1,58 @@
+import java.util.SplittableRandom;
+
+/**
+ * Agent that ignores the ball and wanders the play area, as a baseline for how much time on ball comes
+ * from chance alone.
+ */
+public class RandomWalkAgent implements MouseAgent {
+    // Constants
+    private static final long SEED_SALT = 0x9E3779B97F4A7C15L;  // Keeps the agent's numbers apart from the path's
+    public static final double DEFAULT_STEP = 6;
+
+    // Properties
+    private final double stepSize;
+    private SplittableRandom random = new SplittableRandom();
+    private boolean started = false;
+    private double mouseX, mouseY;
+
+    /**
+     * Creates an agent moving DEFAULT_STEP px a step on average along each axis.
+     */
+    public RandomWalkAgent() {
+        this(DEFAULT_STEP);
+    }
+
+    /**
+     * @param stepSize Standard deviation in px of each step along each axis.
+     */
+    public RandomWalkAgent(double stepSize) {
+        this.stepSize = stepSize;
+    }
+
+    @Override
+    public void reset(long seed) {
+        random = new SplittableRandom(seed ^ SEED_SALT);
+        started = false;
+    }
+
+    @Override
+    public void tick(TraceSimulation simulation) {
+        // Start in the centre of the play area
+        if (!started) {
+            mouseX = (simulation.getAreaLeft() + simulation.getAreaRight()) / 2;
+            mouseY = (simulation.getAreaTop() + simulation.getAreaBottom()) / 2;
+            started = true;
+        }
+
+        mouseX = clamp(mouseX + random.nextGaussian() * stepSize, simulation.getAreaLeft(), simulation.getAreaRight());
+        mouseY = clamp(mouseY + random.nextGaussian() * stepSize, simulation.getAreaTop(), simulation.getAreaBottom());
+        simulation.setMousePosition(mouseX, mouseY);
+    }
+
+    /*
+    Limits the value to between min and max.
+     */
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -1,9 +1,11 @@
 import javafx.animation.FadeTransition;
-import javafx.animation.PauseTransition;
 import javafx.geometry.Pos;
 import javafx.scene.Group;
 import javafx.scene.Scene;
 import javafx.scene.control.Label;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
@@ -11,52 +13,88 @@ import javafx.scene.paint.Paint;
 import javafx.scene.text.Font;
 import javafx.util.Duration;
 
+import java.util.Random;
+
 /**
  * Class that shows a red screen, followed by a green screen after a random amount of time. When
  * the green screen is shown the mouse is clicked and reaction time measured.
  * @author Matthew Whiteside
  */
 
-public class ReactionGame {
+public class ReactionGame implements Screen {
     // Application Constants
-    private static final Label CENTRE_LABEL = new Label();
-    private static final Label RESET_LABEL = new Label("Clicked too early! Timer reset");   // Label shown when clicking on the red screen
     private static final Font LABEL_FONT = new Font("Verdana", 24);
     private static final ReactionGameStates START_STATE = ReactionGameStates.INTRO;
+    private static final int LATENCY_BUFFER_SIZE = 256;
+    private static final KeyCode MENU_KEY = KeyCode.ESCAPE;
+    private static final long NANOS_PER_TENTH_MILLI = GameClock.NANOS_PER_MILLI / 10;
+    private static final KeyCode SESSION_KEY = KeyCode.S;
+    private static final String TRIALS_PROPERTY = "mouseskills.reactionTrials";
+    private static final int DEFAULT_TRIALS = 20;
+    private static final String DELAY_PROPERTY = "mouseskills.reactionDelay";     // See DelayDistribution.parse()
+    private static final String DEFAULT_DELAY = "uniform:1000-6000";
 
     // Application properties
+    private final ScreenManager screens;
+    private final Label centreLabel = new Label();
+    private final Label resetLabel = new Label("Clicked too early! Timer reset");   // Label shown when clicking on the red screen
+    private Scene scene = null;
     private int windowWidth = 800;
     private int windowHeight = 600;
     private ReactionGameStates state;
-    private PauseTransition pause;
-    private int totalMs = 0;    // Used for calculating average score
-    private int totalTurns = 0;
+    private final QuantileSketch sessionTimes = new QuantileSketch();   // Reaction times this session
     private FadeTransition resetFadeTransition;
+    private final InputLatencyBuffer latencyBuffer = new InputLatencyBuffer(LATENCY_BUFFER_SIZE);
+    private long lastPressNanos = -1;   // When the last mouse press reached the scene
+    private long greenPulseNanos = -1;  // Pulse timestamp of the frame the green screen was shown on
+    private final GameClock timer = new GameClock();    // Times how long it takes the user to react
+    private final StimulusScheduler stimulus = new StimulusScheduler(this::showStimulus);
+    private final FixedPointText resultText = new FixedPointText(256);
+    private final DelayDistribution delays = readDelayDistribution();
+    private final int sessionTrials = readSessionTrials();
+    private final Random random = new Random();
+    private ReactionSession session = null;     // Kept between sessions of the same length to reuse its arrays
+    private boolean sessionRunning = false;
+    private long trialDelayNanos;       // Wait before the current trial's stimulus
+    private int trialEarlyClicks = 0;   // Clicks before the current trial's stimulus
+
+    /**
+     * @param screens Manager used to go back to the menu.
+     */
+    public ReactionGame(ScreenManager screens) {
+        this.screens = screens;
+    }
+
+    /**
+     * Creates the game's scene on the first call.
+     * @return Scene containing the reaction test.
+     */
+    @Override
+    public Scene getScene() {
+        if (scene != null) return scene;
 
-    public Scene createScene() {
         // Create a group, to hold objects
         Group root = new Group();
 
         // Creates a scene
         Scene s = new Scene(root, windowWidth, windowHeight);
-        setSceneColor(s, Color.RED);
+        scene = s;
 
         // Create a VBox to hold multiple labels
         VBox labelHolder = new VBox();
         labelHolder.setPrefSize(windowWidth, windowHeight);
-        labelHolder.getChildren().add(CENTRE_LABEL);
-        labelHolder.getChildren().add(RESET_LABEL);
+        labelHolder.getChildren().add(centreLabel);
+        labelHolder.getChildren().add(resetLabel);
         labelHolder.setAlignment(Pos.CENTER);
 
         // Format reset label
-        RESET_LABEL.setFont(LABEL_FONT);
-        RESET_LABEL.setTextFill(Paint.valueOf(Color.WHITE.toString()));
-        RESET_LABEL.setOpacity(0);
+        resetLabel.setFont(LABEL_FONT);
+        resetLabel.setTextFill(Paint.valueOf(Color.WHITE.toString()));
+        resetLabel.setOpacity(0);
 
-        // Format centre label
-        CENTRE_LABEL.setText("Click to start");
-        CENTRE_LABEL.setFont(LABEL_FONT);
-        CENTRE_LABEL.setTextFill(Paint.valueOf(Color.WHITE.toString()));
+        // Format centre label, its text is set by activate()
+        centreLabel.setFont(LABEL_FONT);
+        centreLabel.setTextFill(Paint.valueOf(Color.WHITE.toString()));
 
         // Creates a border pane that holds the elements of the scene
         BorderPane parentLayout = new BorderPane();
@@ -66,55 +104,116 @@ public class ReactionGame {
         // Add parent layout to the centre of the stack pane
         root.getChildren().add(parentLayout);
 
-        // Setup a timer to time how long it takes the user to react
-        SimpleTimer timer = new SimpleTimer();
+        // Note when the press reached the scene, before any handler runs. JavaFX doesn't expose the native
+        // event time, this is the earliest point we can, so a stall of the FX thread before the press is
+        // dispatched still counts towards the reaction time.
+        s.addEventFilter(MouseEvent.MOUSE_PRESSED, event -> lastPressNanos = System.nanoTime());
 
-        // Set the start state
-        state = START_STATE;
-
-        // Update window sizes when the window size is changed
-        s.widthProperty().addListener((observable, oldValue, newValue) -> {
-            windowWidth = newValue.intValue();
-            labelHolder.setPrefWidth(windowWidth);
-            parentLayout.setPrefWidth(windowWidth);
+        // The reaction test fills the window, so it has a key rather than a button to go back
+        s.addEventHandler(KeyEvent.KEY_PRESSED, event -> {
+            if (event.getCode() == MENU_KEY) screens.show(screens.menu());
+            if (event.getCode() == SESSION_KEY && (state == ReactionGameStates.INTRO || state == ReactionGameStates.RESULTS)) {
+                startSession();
+            }
         });
-        s.heightProperty().addListener((observable, oldValue, newValue) -> {
-            windowHeight = newValue.intValue();
-            labelHolder.setPrefHeight(windowHeight);
-            parentLayout.setPrefHeight(windowHeight);
+
+        // Update window sizes when the window size is changed, once a frame however many size changes there were
+        new LayoutInvalidator(s, (width, height) -> {
+            windowWidth = (int) width;
+            windowHeight = (int) height;
+            labelHolder.setPrefSize(windowWidth, windowHeight);
+            parentLayout.setPrefSize(windowWidth, windowHeight);
         });
 
-        // Handle certain events when the screen is clicked
-        s.setOnMouseClicked(event -> {
-            System.out.println(state);
+        // Handle the mouse being pressed, rather than clicked, which only happens once the button is released
+        s.setOnMousePressed(event -> {
             switch (state) {
                 case INTRO:     // Change the label and start the test
-                    state = ReactionGameStates.RUNNING_RED;
-                    CENTRE_LABEL.setText("Click when screen turns green...");
-                    waitRandomTime(s, timer);
+                    setState(ReactionGameStates.RUNNING_RED);
+                    centreLabel.setText("Click when screen turns green...");
+                    waitRandomTime();
                     break;
                 case RUNNING_RED:   // If the red screen is clicked, reset the wait duration (so you can't cheat!)
+                    if (sessionRunning) session.recordEarlyClick();
+                    trialEarlyClicks++;
                     displayResetText();
-                    pause.stop();
-                    waitRandomTime(s, timer);
+                    stimulus.cancel();
+                    waitRandomTime();
                     break;
                 case RUNNING_GREEN: // If the background is green, record the click and move to results
                     // Collect the result
-                    state = ReactionGameStates.RESULTS;
-                    timer.updateValue();
-                    timer.stop();
+                    setState(ReactionGameStates.RESULTS);
+                    long dispatchNanos = System.nanoTime();
+                    timer.pause(dispatchNanos);
                     setSceneColor(s, Color.BLACK);
-                    // Calculate the average
-                    totalMs += (int) timer.getTotalTime();
-                    totalTurns++;
+                    // Time from the green frame to this press reaching the scene's filter, leaving out the time
+                    // it took to be dispatched to this handler. Fall back to the raw timer if the press came
+                    // before the green frame was shown.
+                    long reactionNanos;
+                    long dispatchDelayNanos = -1;
+                    if (greenPulseNanos >= 0 && lastPressNanos >= greenPulseNanos) {
+                        latencyBuffer.record(lastPressNanos, dispatchNanos, greenPulseNanos);
+                        reactionNanos = lastPressNanos - greenPulseNanos;
+                        dispatchDelayNanos = dispatchNanos - lastPressNanos;
+                    } else {
+                        reactionNanos = timer.getElapsedNanos();
+                    }
+                    int reactionMs = (int) (reactionNanos / GameClock.NANOS_PER_MILLI);
+                    long dispatchDelayMicros = dispatchDelayNanos < 0 ? -1 : dispatchDelayNanos / 1000;
+                    // Add the trial to this session's times and the stored results
+                    sessionTimes.record(reactionNanos);
+                    commitTrialEvent(reactionNanos, dispatchDelayNanos);
+                    SessionResult trialResult = new SessionResult(
+                            System.currentTimeMillis(), 0, 0, 0, reactionNanos, 0, 0, dispatchDelayNanos);
+                    ResultsStore.appendWhenLoaded(ResultsStore.REACTION, trialResult);
+                    // In a session go straight on to the next trial until they're all done
+                    if (sessionRunning) {
+                        session.completeTrial(reactionNanos);
+                        if (session.isComplete()) {
+                            showSessionSummary();
+                        } else {
+                            setState(ReactionGameStates.RUNNING_RED);
+                            setSceneColor(s, Color.RED);
+                            resultText.clear().append("Trial ").appendInt(session.getTrialCount()).append(": ")
+                                    .appendInt(reactionMs).append("ms\nTrial ").appendInt(session.getTrialCount() + 1)
+                                    .append(" of ").appendInt(session.getTrials()).append(", click when screen turns green...");
+                            setCentreText(resultText);
+                            waitRandomTime();
+                        }
+                        break;
+                    }
                     // Display the result
-                    CENTRE_LABEL.setText("Reaction time: " + (int) timer.getTotalTime() + "ms\nAverage: " + (totalMs/totalTurns) + "ms\nClick to go again!");
+                    resultText.clear().append("Reaction time: ").appendInt(reactionMs).append("ms");
+                    if (dispatchDelayMicros >= 0) {
+                        resultText.append(" (dispatch delay ").appendFixed(dispatchDelayMicros / 100, 1)
+                                .append("ms, mean ").appendFixed(Math.round(latencyBuffer.getMeanDispatchDelayMillis() * 10), 1)
+                                .append("ms over the last ").appendInt(latencyBuffer.size()).append(")");
+                    }
+                    resultText.append("\nSession median: ").appendInt(nanosToMillis(sessionTimes.getQuantile(0.5)))
+                            .append("ms over ").appendInt(sessionTimes.getCount()).append(" tries");
+                    // Past results may still be loading, the game doesn't wait for them
+                    ResultsStore store = ResultsStore.getDefaultIfLoaded();
+                    if (store == null) {
+                        resultText.append("\nAll time results are still loading");
+                    } else {
+                        QuantileSketch allTimes = store.getStatistics(ResultsStore.REACTION).getAll();
+                        resultText.append("\nAll time p50 / p90 / p99: ").appendInt(nanosToMillis(allTimes.getQuantile(0.5)))
+                                .append(" / ").appendInt(nanosToMillis(allTimes.getQuantile(0.9)))
+                                .append(" / ").appendInt(nanosToMillis(allTimes.getQuantile(0.99))).append("ms");
+                    }
+                    resultText.append("\nGreen shown ").appendFixed(stimulus.getLastOffsetNanos() / NANOS_PER_TENTH_MILLI, 1)
+                            .append("ms from its target (p99 ")
+                            .appendFixed(stimulus.getOffsets().getQuantile(0.99) / NANOS_PER_TENTH_MILLI, 1)
+                            .append("ms) at ").appendFixed(GameClock.NANOS_PER_SECOND * 10 / stimulus.getFrameNanos(), 1)
+                            .append(" Hz, ").append(FramePacing.current().toString())
+                            .append("\nClick to go again!");
+                    setCentreText(resultText);
                     break;
                 case RESULTS:       // Clear the results screen and start the test
-                    state = ReactionGameStates.RUNNING_RED;
-                    CENTRE_LABEL.setText("Click when screen turns green...");
+                    setState(ReactionGameStates.RUNNING_RED);
+                    centreLabel.setText("Click when screen turns green...");
                     setSceneColor(s, Color.RED);
-                    waitRandomTime(s, timer);
+                    waitRandomTime();
                     break;
             }
         });
@@ -123,32 +222,157 @@ public class ReactionGame {
     }
 
     /**
-     * Waits a random amount of time between 1 - 6 seconds, changes the scene to green and starts the timer.
-     * @param s Current scene
-     * @param t {@link SimpleTimer} timing how long the user takes to react
-     */
-    private void waitRandomTime(Scene s, SimpleTimer t) {
-        // Generate a time between 1 and 6s
-        double time = (Math.random() * 0) + 1;
-
-        // Pause for the amount of time generated
-        pause = new PauseTransition(Duration.seconds(time));
-
-        // Change the scene colour, state and start the timer
-        pause.setOnFinished(event -> {
-            // Check the timer has actually finished and not been force stopped
-            if (Math.round(pause.getCurrentTime().toMillis()) >= Math.round(pause.getDuration().toMillis())) {
-                resetFadeTransition.stop(); // Hide the reset label as it shouldn't be showing anymore
-                RESET_LABEL.setOpacity(0);
-                state = ReactionGameStates.RUNNING_GREEN;
-                setSceneColor(s, Color.GREEN);
-                t.reset();
-                t.start();
-            }
-        });
-        // Start the pause
-        System.out.println("pause playing");
-        pause.play();
+     * Starts a new session from the intro screen.
+     */
+    @Override
+    public void activate() {
+        setState(START_STATE);
+        sessionRunning = false;
+        trialEarlyClicks = 0;
+        centreLabel.setText("Click to start, or press " + SESSION_KEY.getName() + " for a session of "
+                + sessionTrials + " trials (Esc for the menu)");
+        resetLabel.setOpacity(0);
+        setSceneColor(scene, Color.RED);
+        sessionTimes.reset();
+    }
+
+    /**
+     * Stops the wait for the green screen and any animations still running.
+     */
+    @Override
+    public void deactivate() {
+        stimulus.cancel();
+        if (resetFadeTransition != null) resetFadeTransition.stop();
+    }
+
+    /**
+     * Starts a session of trials that run one after the other, the number set by TRIALS_PROPERTY.
+     */
+    private void startSession() {
+        int trials = sessionTrials;
+        if (session == null || session.getTrials() != trials) session = new ReactionSession(trials);
+        else session.clear();
+        sessionRunning = true;
+        trialEarlyClicks = 0;
+
+        setState(ReactionGameStates.RUNNING_RED);
+        centreLabel.setText("Trial 1 of " + trials + ", click when screen turns green...");
+        setSceneColor(scene, Color.RED);
+        waitRandomTime();
+    }
+
+    /**
+     * Ends the session and shows its statistics.
+     */
+    private void showSessionSummary() {
+        sessionRunning = false;
+        setState(ReactionGameStates.RESULTS);
+        session.summarize();
+        resultText.clear().append("Session of ").appendInt(session.getTrials()).append(" trials")
+                .append("\nMedian: ").appendInt(nanosToMillis(session.getMedianNanos()))
+                .append("ms, trimmed mean: ").appendInt(nanosToMillis(session.getTrimmedMeanNanos()))
+                .append("ms, SD: ").appendInt(nanosToMillis(session.getStdDevNanos()))
+                .append("ms\nAnticipations (under ").appendInt(nanosToMillis(ReactionSession.ANTICIPATION_NANOS))
+                .append("ms): ").appendInt(session.getAnticipations())
+                .append(", early clicks: ").appendInt(session.getTotalEarlyClicks())
+                .append("\nClick to go again, or press ").append(SESSION_KEY.getName()).append(" for another session");
+        setCentreText(resultText);
+    }
+
+    /**
+     * Waits a random amount of time from the delay distribution, then shows the green screen on the
+     * pulse closest to that time.
+     */
+    private void waitRandomTime() {
+        long delay = delays.sample(random);
+        if (sessionRunning) session.beginTrial(delay);
+        trialDelayNanos = delay;
+
+        // Schedule the green screen for the time generated
+        stimulus.schedule(delay);
+    }
+
+    /**
+     * Moves to a new state, recorded as a {@link GameEvents.ReactionState}.
+     */
+    private void setState(ReactionGameStates newState) {
+        GameEvents.ReactionState event = new GameEvents.ReactionState();
+        if (event.shouldCommit()) {
+            event.from = state == null ? null : state.name();
+            event.to = newState.name();
+            event.commit();
+        }
+        state = newState;
+    }
+
+    /**
+     * Records the trial that has just finished as a {@link GameEvents.ReactionTrial}, and starts counting
+     * early clicks for the next one.
+     */
+    private void commitTrialEvent(long reactionNanos, long dispatchDelayNanos) {
+        GameEvents.ReactionTrial event = new GameEvents.ReactionTrial();
+        if (event.shouldCommit()) {
+            event.trial = sessionRunning ? session.getTrialCount() + 1 : 0;
+            event.delay = trialDelayNanos;
+            event.stimulusOffset = stimulus.getLastOffsetNanos();
+            event.reaction = reactionNanos;
+            event.dispatchDelay = dispatchDelayNanos;
+            event.earlyClicks = trialEarlyClicks;
+            event.commit();
+        }
+        trialEarlyClicks = 0;
+    }
+
+    /**
+     * Reads the number of trials in a session from TRIALS_PROPERTY, falling back to DEFAULT_TRIALS if it
+     * isn't set or isn't a positive number.
+     */
+    private static int readSessionTrials() {
+        String text = System.getProperty(TRIALS_PROPERTY);
+        if (text == null) return DEFAULT_TRIALS;
+        try {
+            int trials = Integer.parseInt(text.trim());
+            if (trials >= 1) return trials;
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        System.err.println("Using " + DEFAULT_TRIALS + " reaction trials a session, not a positive number: " + text);
+        return DEFAULT_TRIALS;
+    }
+
+    /**
+     * Reads the delay distribution from DELAY_PROPERTY, falling back to DEFAULT_DELAY if it isn't set
+     * or can't be read.
+     */
+    private static DelayDistribution readDelayDistribution() {
+        String text = System.getProperty(DELAY_PROPERTY, DEFAULT_DELAY);
+        try {
+            return DelayDistribution.parse(text);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Using " + DEFAULT_DELAY + " for the reaction delay: " + e.getMessage());
+            return DelayDistribution.parse(DEFAULT_DELAY);
+        }
+    }
+
+    /**
+     * Changes the scene to green and starts the timer from the pulse it is drawn on.
+     * @param pulseNanos Timestamp of the pulse showing the green screen.
+     */
+    private void showStimulus(long pulseNanos) {
+        if (resetFadeTransition != null) resetFadeTransition.stop(); // Hide the reset label as it shouldn't be showing anymore
+        resetLabel.setOpacity(0);
+        setState(ReactionGameStates.RUNNING_GREEN);
+        setSceneColor(scene, Color.GREEN);
+        timer.reset();
+        timer.start(pulseNanos);
+        greenPulseNanos = pulseNanos;
+    }
+
+    /**
+     * Converts nanoseconds to whole milliseconds.
+     */
+    private static long nanosToMillis(long nanos) {
+        return nanos / GameClock.NANOS_PER_MILLI;
     }
 
     /**
@@ -161,12 +385,20 @@ public class ReactionGame {
     }
 
     /**
-     * Displays the RESET_LABEL for 3 seconds, appears instantly then fades out.
+     * Displays the resetLabel for 3 seconds, appears instantly then fades out.
      */
     private void displayResetText() {
-        resetFadeTransition = new FadeTransition(Duration.millis(3000), RESET_LABEL);
+        resetFadeTransition = new FadeTransition(Duration.millis(3000), resetLabel);
         resetFadeTransition.setFromValue(1);
         resetFadeTransition.setToValue(0);
         resetFadeTransition.play();
     }
+
+    /**
+     * Sets the text of centreLabel, only creating a new string if the text has changed.
+     * @param text Text to show
+     */
+    private void setCentreText(FixedPointText text) {
+        if (!text.contentEquals(centreLabel.getText())) centreLabel.setText(text.toString());
+    }
 }
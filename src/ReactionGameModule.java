@@ -0,0 +1,20 @@
+/**
+ * Menu entry for {@link ReactionGame}.
+ */
+public class ReactionGameModule implements GameModule {
+
+    @Override
+    public String getName() {
+        return "Reaction test";
+    }
+
+    @Override
+    public int getMenuOrder() {
+        return 10;
+    }
+
+    @Override
+    public Screen getScreen(ScreenManager screens) {
+        return screens.reactionGame();
+    }
+}
@@ -0,0 +1,168 @@
+import java.util.Arrays;
+
+/**
+ * A run of reaction trials in {@link ReactionGame}, keeping every trial so the session can be summed up
+ * with statistics that aren't thrown by the odd bad trial.
+ *
+ * Each trial's reaction time, stimulus delay and number of early clicks are held in primitive arrays
+ * allocated up front for the whole session, so a trial costs no allocation and a fixed few bytes, and
+ * sessions of many thousands of trials are fine.
+ *
+ * Reactions faster than ANTICIPATION_NANOS can't be reactions to the stimulus, the player guessed, so
+ * summarize() counts them and leaves them out of the statistics.
+ */
+public class ReactionSession {
+    // Constants
+    public static final long ANTICIPATION_NANOS = 100 * GameClock.NANOS_PER_MILLI;
+    public static final double TRIM_FRACTION = 0.1;     // Share of trials dropped from each end for the trimmed mean
+
+    // Properties
+    private final long[] reactionNanos;
+    private final long[] delayNanos;
+    private final int[] earlyClicks;
+    private final long[] sorted;        // Scratch space for summarize()
+    private int trialCount = 0;         // Completed trials
+    private boolean trialStarted = false;
+
+    // Summary, filled in by summarize()
+    private int validTrials;
+    private int anticipations;
+    private int totalEarlyClicks;
+    private long medianNanos;
+    private long trimmedMeanNanos;
+    private long stdDevNanos;
+
+    /**
+     * @param trials Number of trials in the session.
+     */
+    public ReactionSession(int trials) {
+        if (trials <= 0) throw new IllegalArgumentException("A session needs at least one trial");
+        reactionNanos = new long[trials];
+        delayNanos = new long[trials];
+        earlyClicks = new int[trials];
+        sorted = new long[trials];
+    }
+
+    /**
+     * Clears every trial so the session can be run again.
+     */
+    public void clear() {
+        Arrays.fill(earlyClicks, 0);
+        trialCount = 0;
+        trialStarted = false;
+    }
+
+    /**
+     * Starts the next trial, or restarts it after an early click.
+     * @param delay Wait before this trial's stimulus.
+     */
+    public void beginTrial(long delay) {
+        if (isComplete()) throw new IllegalStateException("Every trial is done");
+        delayNanos[trialCount] = delay;
+        trialStarted = true;
+    }
+
+    /**
+     * Counts a click before the current trial's stimulus.
+     */
+    public void recordEarlyClick() {
+        if (trialStarted) earlyClicks[trialCount]++;
+    }
+
+    /**
+     * Finishes the current trial.
+     * @param reaction Time from the stimulus to the click.
+     */
+    public void completeTrial(long reaction) {
+        if (!trialStarted) throw new IllegalStateException("No trial has been started");
+        reactionNanos[trialCount++] = reaction;
+        trialStarted = false;
+    }
+
+    public boolean isComplete() {
+        return trialCount == reactionNanos.length;
+    }
+
+    /**
+     * Works out the summary statistics of the completed trials, ignoring anticipations. The getters
+     * below return them until the next call.
+     */
+    public void summarize() {
+        validTrials = 0;
+        anticipations = 0;
+        totalEarlyClicks = 0;
+        for (int i = 0; i < trialCount; i++) {
+            totalEarlyClicks += earlyClicks[i];
+            if (reactionNanos[i] < ANTICIPATION_NANOS) anticipations++;
+            else sorted[validTrials++] = reactionNanos[i];
+        }
+        if (validTrials == 0) {
+            medianNanos = trimmedMeanNanos = stdDevNanos = 0;
+            return;
+        }
+        Arrays.sort(sorted, 0, validTrials);
+
+        medianNanos = validTrials % 2 == 1 ? sorted[validTrials / 2]
+                : (sorted[validTrials / 2 - 1] + sorted[validTrials / 2]) / 2;
+
+        int trim = (int) (validTrials * TRIM_FRACTION);
+        double sum = 0;
+        for (int i = trim; i < validTrials - trim; i++) sum += sorted[i];
+        trimmedMeanNanos = Math.round(sum / (validTrials - 2 * trim));
+
+        // Two passes rather than a running sum of squares, which loses precision with nanosecond values
+        double mean = 0;
+        for (int i = 0; i < validTrials; i++) mean += sorted[i];
+        mean /= validTrials;
+        double squares = 0;
+        for (int i = 0; i < validTrials; i++) squares += (sorted[i] - mean) * (sorted[i] - mean);
+        stdDevNanos = validTrials > 1 ? Math.round(Math.sqrt(squares / (validTrials - 1))) : 0;
+    }
+
+    public int getTrials() {
+        return reactionNanos.length;
+    }
+
+    public int getTrialCount() {
+        return trialCount;
+    }
+
+    public long getReactionNanos(int trial) {
+        return reactionNanos[trial];
+    }
+
+    public long getDelayNanos(int trial) {
+        return delayNanos[trial];
+    }
+
+    public int getEarlyClicks(int trial) {
+        return earlyClicks[trial];
+    }
+
+    /**
+     * @return Completed trials that weren't anticipations, as of the last summarize().
+     */
+    public int getValidTrials() {
+        return validTrials;
+    }
+
+    public int getAnticipations() {
+        return anticipations;
+    }
+
+    public int getTotalEarlyClicks() {
+        return totalEarlyClicks;
+    }
+
+    public long getMedianNanos() {
+        return medianNanos;
+    }
+
+    public long getTrimmedMeanNanos() {
+        return trimmedMeanNanos;
+    }
+
+    public long getStdDevNanos() {
+        return stdDevNanos;
+    }
+}
@@ -0,0 +1,103 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Score distributions of one game's stored results: a {@link QuantileSketch} of every score, and one for
+ * each combination of settings, so results screens can show percentiles straight away.
+ *
+ * The statistics remember how many results of the {@link ResultsLog} they cover. They are saved next to
+ * the log, and when loaded only the results added since need to be recorded, never the whole history.
+ * Adding a result is O(1).
+ */
+public class ResultStatistics {
+    // Constants
+    private static final int MAGIC = 0x4D535354;  // "MSST"
+    private static final byte VERSION = 1;
+
+    // Properties
+    private final QuantileSketch all = new QuantileSketch();
+    private final Map<Long, QuantileSketch> bySettings = new HashMap<>();
+    private int coveredResults = 0;
+
+    /**
+     * Reads statistics saved by save(). A missing file gives empty statistics.
+     * @throws IOException If the file can't be read or isn't saved statistics.
+     */
+    public static ResultStatistics load(Path file) throws IOException {
+        ResultStatistics statistics = new ResultStatistics();
+        if (!Files.exists(file)) return statistics;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException(file + " is not saved statistics");
+            byte version = in.readByte();
+            if (version != VERSION) throw new IOException(file + " has unsupported version " + version);
+            statistics.coveredResults = in.readInt();
+            statistics.all.merge(QuantileSketch.readFrom(in));
+            int settingsCount = in.readInt();
+            for (int i = 0; i < settingsCount; i++) {
+                statistics.bySettings.put(in.readLong(), QuantileSketch.readFrom(in));
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Writes the statistics to a file, replacing it.
+     * @throws IOException If the file can't be written.
+     */
+    public void save(Path file) throws IOException {
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(coveredResults);
+            all.writeTo(out);
+            out.writeInt(bySettings.size());
+            for (Map.Entry<Long, QuantileSketch> entry : bySettings.entrySet()) {
+                out.writeLong(entry.getKey());
+                entry.getValue().writeTo(out);
+            }
+        }
+    }
+
+    /**
+     * Records every result in the log these statistics don't cover yet.
+     * @return false if these statistics cover more results than the log has, so they can't be from it.
+     */
+    public boolean catchUp(ResultsLog log) {
+        if (coveredResults > log.getCount()) return false;
+        for (; coveredResults < log.getCount(); coveredResults++) {
+            long score = log.getScoreNanos(coveredResults);
+            all.record(score);
+            long key = ResultsLog.settingsKey(log.getBallSpeed(coveredResults), log.getBallRadius(coveredResults),
+                    log.getRuntimeMillis(coveredResults));
+            bySettings.computeIfAbsent(key, k -> new QuantileSketch()).record(score);
+        }
+        return true;
+    }
+
+    /**
+     * @return Distribution of every score.
+     */
+    public QuantileSketch getAll() {
+        return all;
+    }
+
+    /**
+     * @return Distribution of the scores with the given settings, {@link QuantileSketch#EMPTY} if there are none.
+     */
+    public QuantileSketch getForSettings(int ballSpeed, int ballRadius, long runtimeMillis) {
+        QuantileSketch sketch = bySettings.get(ResultsLog.settingsKey(ballSpeed, ballRadius, runtimeMillis));
+        return sketch == null ? QuantileSketch.EMPTY : sketch;
+    }
+
+    public int getCoveredResults() {
+        return coveredResults;
+    }
+}
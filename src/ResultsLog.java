@@ -0,0 +1,201 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Every stored result of one game, held in primitive arrays, with an index by settings. Results are in
+ * the order they were appended.
+ *
+ * On disk a log is a header followed by fixed-size records, which {@link #load} maps and decodes in one
+ * pass, so tens of thousands of sessions load in a few milliseconds. File layout:
+ *  - header (HEADER_BYTES): MAGIC (int), VERSION (byte), padding
+ *  - per result (RECORD_BYTES): timestamp (long), ball speed (int), ball radius (int), run time (long),
+ *    score (long), RMS error (float), furthest distance (float), extra (long)
+ * A partly written record at the end of the file, from a crash during a write, is ignored.
+ */
+public class ResultsLog {
+    // Constants
+    public static final int MAGIC = 0x4D535253;  // "MSRS"
+    public static final byte VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+    public static final int RECORD_BYTES = 8 + 4 + 4 + 8 + 8 + 4 + 4 + 8;
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Properties
+    private int count = 0;
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private int[] ballSpeeds = new int[INITIAL_CAPACITY];
+    private int[] ballRadii = new int[INITIAL_CAPACITY];
+    private long[] runtimes = new long[INITIAL_CAPACITY];
+    private long[] scores = new long[INITIAL_CAPACITY];
+    private float[] rmsErrors = new float[INITIAL_CAPACITY];
+    private float[] maxExcursions = new float[INITIAL_CAPACITY];
+    private long[] extras = new long[INITIAL_CAPACITY];
+    private final Map<Long, IndexEntry> settingsIndex = new HashMap<>();
+
+    /**
+     * Reads a log file. A missing or empty file gives an empty log.
+     * @throws IOException If the file can't be read or isn't a results log.
+     */
+    public static ResultsLog load(Path file) throws IOException {
+        ResultsLog log = new ResultsLog();
+        if (!Files.exists(file) || Files.size(file) == 0) return log;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            checkHeader(in, file);
+            int records = (int) ((channel.size() - HEADER_BYTES) / RECORD_BYTES);
+            log.ensureCapacity(records);
+            for (int i = 0; i < records; i++) {
+                int pos = HEADER_BYTES + i * RECORD_BYTES;
+                log.add(in.getLong(pos), in.getInt(pos + 8), in.getInt(pos + 12), in.getLong(pos + 16),
+                        in.getLong(pos + 24), in.getFloat(pos + 32), in.getFloat(pos + 36), in.getLong(pos + 40));
+            }
+        }
+        return log;
+    }
+
+    /**
+     * Checks the header at the start of the buffer.
+     * @throws IOException If it isn't a results log header.
+     */
+    static void checkHeader(ByteBuffer in, Path file) throws IOException {
+        if (in.limit() < HEADER_BYTES || in.getInt(0) != MAGIC)
+            throw new IOException(file + " is not a results log");
+        if (in.get(4) != VERSION)
+            throw new IOException(file + " has unsupported version " + in.get(4));
+    }
+
+    /**
+     * Writes a header at the buffer's position.
+     */
+    static void putHeader(ByteBuffer out) {
+        out.putInt(MAGIC);
+        out.put(VERSION);
+        for (int i = 5; i < HEADER_BYTES; i++) out.put((byte) 0);
+    }
+
+    /**
+     * Writes a result as a record at the buffer's position.
+     */
+    static void putRecord(ByteBuffer out, SessionResult result) {
+        out.putLong(result.getTimestampMillis());
+        out.putInt(result.getBallSpeed());
+        out.putInt(result.getBallRadius());
+        out.putLong(result.getRuntimeMillis());
+        out.putLong(result.getScoreNanos());
+        out.putFloat(result.getRmsError());
+        out.putFloat(result.getMaxExcursion());
+        out.putLong(result.getExtraNanos());
+    }
+
+    /**
+     * Adds a result to the end of the log, in memory only.
+     */
+    public void add(SessionResult result) {
+        add(result.getTimestampMillis(), result.getBallSpeed(), result.getBallRadius(), result.getRuntimeMillis(),
+                result.getScoreNanos(), result.getRmsError(), result.getMaxExcursion(), result.getExtraNanos());
+    }
+
+    /**
+     * @return Indices of every result played with the given settings, oldest first.
+     */
+    public int[] withSettings(int ballSpeed, int ballRadius, long runtimeMillis) {
+        IndexEntry entry = settingsIndex.get(settingsKey(ballSpeed, ballRadius, runtimeMillis));
+        return entry == null ? new int[0] : Arrays.copyOf(entry.results, entry.count);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getTimestampMillis(int result) {
+        return timestamps[result];
+    }
+
+    public int getBallSpeed(int result) {
+        return ballSpeeds[result];
+    }
+
+    public int getBallRadius(int result) {
+        return ballRadii[result];
+    }
+
+    public long getRuntimeMillis(int result) {
+        return runtimes[result];
+    }
+
+    public long getScoreNanos(int result) {
+        return scores[result];
+    }
+
+    public float getRmsError(int result) {
+        return rmsErrors[result];
+    }
+
+    public float getMaxExcursion(int result) {
+        return maxExcursions[result];
+    }
+
+    public long getExtraNanos(int result) {
+        return extras[result];
+    }
+
+    private void add(long timestamp, int ballSpeed, int ballRadius, long runtime, long score,
+                     float rmsError, float maxExcursion, long extra) {
+        ensureCapacity(count + 1);
+        timestamps[count] = timestamp;
+        ballSpeeds[count] = ballSpeed;
+        ballRadii[count] = ballRadius;
+        runtimes[count] = runtime;
+        scores[count] = score;
+        rmsErrors[count] = rmsError;
+        maxExcursions[count] = maxExcursion;
+        extras[count] = extra;
+        settingsIndex.computeIfAbsent(settingsKey(ballSpeed, ballRadius, runtime), key -> new IndexEntry()).add(count);
+        count++;
+    }
+
+    /*
+    Grows the arrays to hold at least the given number of results.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= timestamps.length) return;
+        int size = Math.max(capacity, timestamps.length * 2);
+        timestamps = Arrays.copyOf(timestamps, size);
+        ballSpeeds = Arrays.copyOf(ballSpeeds, size);
+        ballRadii = Arrays.copyOf(ballRadii, size);
+        runtimes = Arrays.copyOf(runtimes, size);
+        scores = Arrays.copyOf(scores, size);
+        rmsErrors = Arrays.copyOf(rmsErrors, size);
+        maxExcursions = Arrays.copyOf(maxExcursions, size);
+        extras = Arrays.copyOf(extras, size);
+    }
+
+    /*
+    Packs a combination of settings into one key: speed and radius are small, and runs are far shorter
+    than 2^32 ms.
+     */
+    static long settingsKey(int ballSpeed, int ballRadius, long runtimeMillis) {
+        return ((long) (ballSpeed & 0xFFFF) << 48) | ((long) (ballRadius & 0xFFFF) << 32) | (runtimeMillis & 0xFFFFFFFFL);
+    }
+
+    /*
+    Growable list of the results with one combination of settings.
+     */
+    private static final class IndexEntry {
+        int[] results = new int[8];
+        int count = 0;
+
+        void add(int result) {
+            if (count == results.length) results = Arrays.copyOf(results, count * 2);
+            results[count++] = result;
+        }
+    }
+}
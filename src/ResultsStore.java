@@ -0,0 +1,382 @@
+import javafx.application.Platform;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Local store of every finished game, one append-only {@link ResultsLog} file per game, along with the
+ * {@link ResultStatistics} of each game's scores.
+ *
+ * All logs are loaded when the store is opened. Appending adds the result to the in-memory log straight
+ * away and hands it to a background writer thread, which takes everything queued up (at most
+ * MAX_BATCH at a time) and appends it to the files with one write per log, so the FX thread never waits
+ * on the disk. The queue is drained when the JVM shuts down, and the statistics are saved then so the
+ * next start only has to catch them up with results they missed.
+ *
+ * Logs and statistics are read from the FX thread. They are only changed by append(), and saved by
+ * close(), which hold the store's lock, so saving at shutdown can't see a result half recorded.
+ *
+ * The default store is opened on a background thread by openDefault() as the application starts, and
+ * the FX thread never waits for it: getDefaultIfLoaded() returns null until it is open, appendWhenLoaded()
+ * holds results until it is, and whenLoaded() runs its action once it is, after the held results and in
+ * the order the actions were given. Only background threads and tools may wait for it with getDefault().
+ * Results still held at shutdown are appended before the store is closed, if it opens in time.
+ */
+public class ResultsStore {
+    // Constants
+    public static final String TRACE = "trace";
+    public static final String REACTION = "reaction";
+    public static final Path DEFAULT_DIRECTORY = Paths.get(System.getProperty("user.home"), ".mouseskills", "results");
+    private static final String[] GAMES = {TRACE, REACTION};
+    private static final int MAX_BATCH = 256;
+    private static final long SHUTDOWN_WAIT_MILLIS = 2000;
+    private static final Pending STOP = new Pending(null, null);    // Queued by close() to stop the writer
+
+    private static final CompletableFuture<ResultsStore> defaultStore = new CompletableFuture<>();
+    private static boolean defaultOpening = false;      // Guarded by ResultsStore.class
+    private static volatile ResultsStore loadedDefault = null;  // Set on the FX thread once open
+    private static final List<Pending> held = new ArrayList<>();    // Guarded by ResultsStore.class
+    private static final List<Consumer<ResultsStore>> waiting = new ArrayList<>();  // FX thread only
+
+    // Properties
+    private final Path directory;
+    private final Map<String, ResultsLog> logs = new HashMap<>();
+    private final Map<String, ResultStatistics> statistics = new HashMap<>();
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed = false;
+
+    /**
+     * Opens the store in the given directory, loading every game's log and starting the writer.
+     */
+    public ResultsStore(Path directory) {
+        this.directory = directory;
+        for (String game : GAMES) {
+            try {
+                logs.put(game, ResultsLog.load(logFile(game)));
+            } catch (IOException e) {
+                // Start afresh, the writer moves the unreadable file aside
+                System.err.println("Couldn't load " + game + " results: " + e.getMessage());
+                logs.put(game, new ResultsLog());
+            }
+            statistics.put(game, loadStatistics(game, logs.get(game)));
+        }
+        writer = new Thread(this::writeLoop, "results-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Starts opening the store in DEFAULT_DIRECTORY on a background thread, unless it already has been.
+     * The store is closed at shutdown. Needs the JavaFX toolkit to be running.
+     */
+    public static void openDefault() {
+        synchronized (ResultsStore.class) {
+            if (defaultOpening) return;
+            defaultOpening = true;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(ResultsStore::closeDefault, "results-store-shutdown"));
+        Thread loader = new Thread(() -> {
+            ResultsStore store;
+            try {
+                store = new ResultsStore(DEFAULT_DIRECTORY);
+            } catch (RuntimeException e) {
+                defaultStore.completeExceptionally(e);
+                throw e;
+            }
+            defaultStore.complete(store);
+            Platform.runLater(() -> {
+                appendHeld(store);
+                for (Consumer<ResultsStore> action : waiting) action.accept(store);
+                waiting.clear();
+            });
+        }, "results-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Waits for the store in DEFAULT_DIRECTORY to open, opening it if needed. Not for the FX thread,
+     * which should use getDefaultIfLoaded() or whenLoaded().
+     * @return The default store.
+     */
+    public static ResultsStore getDefault() {
+        openDefault();
+        return defaultStore.join();
+    }
+
+    /**
+     * Never waits.
+     * @return The store in DEFAULT_DIRECTORY, null if it is still being opened.
+     */
+    public static ResultsStore getDefaultIfLoaded() {
+        openDefault();
+        return loadedDefault;
+    }
+
+    /**
+     * Stores a result in the store in DEFAULT_DIRECTORY: straight away if it is open, otherwise once it
+     * is, or at shutdown if that comes first. Only call on the FX thread.
+     * @param game One of the game names, e.g. TRACE.
+     */
+    public static void appendWhenLoaded(String game, SessionResult result) {
+        ResultsStore store;
+        synchronized (ResultsStore.class) {
+            store = getDefaultIfLoaded();
+            if (store == null) {
+                held.add(new Pending(game, result));
+                return;
+            }
+        }
+        store.append(game, result);
+    }
+
+    /**
+     * Runs an action with the store in DEFAULT_DIRECTORY: straight away if it is open, otherwise on the FX
+     * thread once it is, after any results given to appendWhenLoaded(). Actions run in the order they were
+     * given, and are dropped if the application closes first. Only call on the FX thread.
+     */
+    public static void whenLoaded(Consumer<ResultsStore> action) {
+        ResultsStore store = getDefaultIfLoaded();
+        if (store != null) action.accept(store);
+        else waiting.add(action);
+    }
+
+    /**
+     * @param game One of the game names, e.g. TRACE.
+     * @return Every stored result of the game, including ones still waiting to be written.
+     */
+    public ResultsLog getLog(String game) {
+        ResultsLog log = logs.get(game);
+        if (log == null) throw new IllegalArgumentException("Unknown game: " + game);
+        return log;
+    }
+
+    /**
+     * @param game One of the game names, e.g. TRACE.
+     * @return Score distributions of every stored result of the game.
+     */
+    public ResultStatistics getStatistics(String game) {
+        ResultStatistics gameStatistics = statistics.get(game);
+        if (gameStatistics == null) throw new IllegalArgumentException("Unknown game: " + game);
+        return gameStatistics;
+    }
+
+    /**
+     * Stores a result. Returns straight away, the result is written to disk in the background.
+     * @param game One of the game names, e.g. TRACE.
+     */
+    public synchronized void append(String game, SessionResult result) {
+        ResultsLog log = getLog(game);
+        log.add(result);
+        getStatistics(game).catchUp(log);
+        if (!closed) queue.add(new Pending(game, result));
+    }
+
+    /**
+     * Writes out everything still queued, stops the writer and saves the statistics.
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            queue.add(STOP);
+        }
+        try {
+            writer.join(SHUTDOWN_WAIT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            for (String game : GAMES) {
+                try {
+                    statistics.get(game).save(statisticsFile(game));
+                } catch (IOException e) {
+                    System.err.println("Couldn't save " + game + " statistics: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /*
+    Marks the default store as open and appends the results held until it was. The results are taken
+    under the class lock, so each is appended once, by the FX thread or by closeDefault().
+     */
+    private static void appendHeld(ResultsStore store) {
+        List<Pending> results;
+        synchronized (ResultsStore.class) {
+            loadedDefault = store;
+            results = new ArrayList<>(held);
+            held.clear();
+        }
+        for (Pending pending : results) store.append(pending.game, pending.result);
+    }
+
+    /*
+    Body of the shutdown hook: waits a while for the default store to open if it hasn't, appends any
+    results still held for it, and closes it.
+     */
+    private static void closeDefault() {
+        ResultsStore store;
+        try {
+            store = defaultStore.get(SHUTDOWN_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException | TimeoutException e) {
+            synchronized (ResultsStore.class) {
+                if (!held.isEmpty()) System.err.println("Results store didn't open, " + held.size() + " results lost");
+            }
+            return;
+        }
+        appendHeld(store);
+        store.close();
+    }
+
+    /*
+    Loads a game's saved statistics and records the results added since they were saved. Rebuilds them
+    from the whole log if they are missing, unreadable or don't match it.
+     */
+    private ResultStatistics loadStatistics(String game, ResultsLog log) {
+        try {
+            ResultStatistics saved = ResultStatistics.load(statisticsFile(game));
+            if (saved.catchUp(log)) return saved;
+        } catch (IOException e) {
+            System.err.println("Couldn't load " + game + " statistics, rebuilding them: " + e.getMessage());
+        }
+        ResultStatistics rebuilt = new ResultStatistics();
+        rebuilt.catchUp(log);
+        return rebuilt;
+    }
+
+    /*
+    Body of the writer thread: waits for results and writes them in batches until it reaches STOP.
+     */
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        Map<String, FileChannel> channels = new HashMap<>();
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_BATCH * ResultsLog.RECORD_BYTES);
+        boolean stopping = false;
+        try {
+            while (!stopping) {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+                // Everything queued before STOP is in this batch
+                stopping = batch.remove(STOP);
+                writeBatch(batch, channels, buffer);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (FileChannel channel : channels.values()) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    System.err.println("Couldn't close results log: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /*
+    Appends a batch of results to their logs, one write per log.
+     */
+    private void writeBatch(List<Pending> batch, Map<String, FileChannel> channels, ByteBuffer buffer) {
+        for (String game : GAMES) {
+            buffer.clear();
+            for (Pending pending : batch) {
+                if (pending.game.equals(game)) ResultsLog.putRecord(buffer, pending.result);
+            }
+            if (buffer.position() == 0) continue;
+            buffer.flip();
+            try {
+                FileChannel channel = channels.get(game);
+                if (channel == null) {
+                    channel = openForAppend(game);
+                    channels.put(game, channel);
+                }
+                while (buffer.hasRemaining()) channel.write(buffer);
+                channel.force(false);
+            } catch (IOException e) {
+                System.err.println("Couldn't write " + game + " results: " + e.getMessage());
+            }
+        }
+    }
+
+    /*
+    Opens a game's log for appending, positioned after its last whole record. Writes the header if the
+    log is new, and moves the file aside if it isn't a results log.
+     */
+    private FileChannel openForAppend(String game) throws IOException {
+        Path file = logFile(game);
+        Files.createDirectories(directory);
+        if (Files.exists(file) && Files.size(file) > 0) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(ResultsLog.HEADER_BYTES);
+                channel.read(header, 0);
+                header.flip();
+                ResultsLog.checkHeader(header, file);
+            } catch (IOException e) {
+                Path aside = file.resolveSibling(file.getFileName() + ".corrupt-" + System.currentTimeMillis());
+                Files.move(file, aside, StandardCopyOption.REPLACE_EXISTING);
+                System.err.println(e.getMessage() + ", moved to " + aside);
+            }
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size < ResultsLog.HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(ResultsLog.HEADER_BYTES);
+            ResultsLog.putHeader(header);
+            header.flip();
+            channel.truncate(0);
+            while (header.hasRemaining()) channel.write(header, header.position());
+            size = ResultsLog.HEADER_BYTES;
+        } else {
+            // Drop a partly written record left by a crash
+            size -= (size - ResultsLog.HEADER_BYTES) % ResultsLog.RECORD_BYTES;
+            channel.truncate(size);
+        }
+        channel.position(size);
+        return channel;
+    }
+
+    private Path logFile(String game) {
+        return directory.resolve(game + ".log");
+    }
+
+    private Path statisticsFile(String game) {
+        return directory.resolve(game + ".stats");
+    }
+
+    /*
+    A result waiting to be written.
+     */
+    private static final class Pending {
+        final String game;
+        final SessionResult result;
+
+        Pending(String game, SessionResult result) {
+            this.game = game;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+import javafx.scene.Scene;
+
+/**
+ * One screen of the program, shown on the stage by a {@link ScreenManager}.
+ *
+ * A screen builds its scene once and keeps it, so going back to a screen doesn't rebuild it. Anything
+ * that runs by itself (animation timers, timelines, transitions) must only run between activate() and
+ * deactivate(), so screens that aren't showing cost nothing.
+ */
+public interface Screen {
+
+    /**
+     * @return The screen's scene, built on the first call and the same one after.
+     */
+    Scene getScene();
+
+    /**
+     * Called just after the screen is put on the stage. Starts timers and gets the screen ready to use,
+     * e.g. starting a new run.
+     */
+    default void activate() {
+    }
+
+    /**
+     * Called just before the screen is taken off the stage. Stops every timer, timeline and transition
+     * the screen started.
+     */
+    default void deactivate() {
+    }
+}
@@ -0,0 +1,96 @@
+import javafx.application.Platform;
+import javafx.stage.Stage;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command line check that switching screens doesn't leak memory or leave anything running.
+ *
+ * Goes menu -> trace game -> results -> reaction game -> menu through a {@link ScreenManager} for a
+ * number of cycles (1,000 by default), finishing each trace run straight away rather than playing it.
+ * Every REPORT_INTERVAL cycles it reports the heap used after a GC and the CPU the process uses while
+ * sitting on the menu. Both should stay flat: a rising heap means old scenes are still reachable, and
+ * rising idle CPU means timers or timelines of screens that aren't showing are still running.
+ *
+ * Results and replays go to a temporary home directory so the check doesn't add to the player's history.
+ *
+ * Usage: java ScreenLeakCheck [cycles]
+ */
+public class ScreenLeakCheck {
+    // Constants
+    private static final int DEFAULT_CYCLES = 1000;
+    private static final int REPORT_INTERVAL = 100;
+    private static final long IDLE_MILLIS = 1000;
+    private static final long BYTES_PER_KB = 1024;
+
+    // Properties
+    private static ScreenManager screens;
+
+    public static void main(String[] args) throws Exception {
+        int cycles = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CYCLES;
+
+        // Must be set before ResultsStore and SessionRecorder read it
+        Path home = Files.createTempDirectory("mouseskills-leak-check");
+        System.setProperty("user.home", home.toString());
+        System.out.println("Writing results under " + home);
+
+        FramePacing.current().apply();
+        Platform.startup(() -> {});
+        onFxThread(() -> {
+            Stage stage = new Stage();
+            screens = new ScreenManager(stage, new GameRegistry());
+            screens.show(screens.menu());
+            stage.show();
+        });
+
+        System.out.println("cycle   heap after GC (KB)   idle CPU (%)");
+        report(0);
+        for (int cycle = 1; cycle <= cycles; cycle++) {
+            onFxThread(() -> screens.show(screens.traceGame()));
+            onFxThread(() -> screens.traceGame().finishRun());
+            onFxThread(() -> screens.show(screens.reactionGame()));
+            onFxThread(() -> screens.show(screens.menu()));
+            if (cycle % REPORT_INTERVAL == 0) report(cycle);
+        }
+
+        Platform.exit();
+        System.exit(0);
+    }
+
+    /*
+    Prints the heap used after a GC and the process CPU use over IDLE_MILLIS spent on the current screen.
+     */
+    private static void report(int cycle) throws InterruptedException {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        long heapKb = (runtime.totalMemory() - runtime.freeMemory()) / BYTES_PER_KB;
+
+        com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        long cpuStart = os.getProcessCpuTime();
+        long wallStart = System.nanoTime();
+        Thread.sleep(IDLE_MILLIS);
+        double cpuPercent = 100.0 * (os.getProcessCpuTime() - cpuStart) / (System.nanoTime() - wallStart);
+
+        System.out.printf("%5d   %18d   %12.1f%n", cycle, heapKb, cpuPercent);
+    }
+
+    /*
+    Runs the action on the JavaFX thread and waits for it to finish.
+     */
+    private static void onFxThread(Runnable action) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        Platform.runLater(() -> {
+            try {
+                action.run();
+            } finally {
+                done.countDown();
+            }
+        });
+        if (!done.await(10, TimeUnit.SECONDS)) throw new IllegalStateException("JavaFX thread is stuck");
+    }
+}
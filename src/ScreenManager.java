@@ -0,0 +1,95 @@
+import javafx.stage.Stage;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Switches the stage between {@link Screen}s, deactivating the old screen before activating the new one,
+ * and keeps one instance of each kind of screen so their scenes are only built once. Screens can be
+ * created from any thread, but only shown from the JavaFX thread.
+ */
+public class ScreenManager {
+    // Properties
+    private final Stage stage;
+    private final GameRegistry games;
+    private final Map<Class<? extends Screen>, Screen> screens = new ConcurrentHashMap<>();
+    private Screen current = null;
+    private TraceGame replay = null;    // Guarded by this, a TraceGame but not the one in screens
+
+    /**
+     * @param stage Stage the program is using.
+     * @param games Games to offer on the menu.
+     */
+    public ScreenManager(Stage stage, GameRegistry games) {
+        this.stage = stage;
+        this.games = games;
+    }
+
+    /**
+     * Replaces the screen on the stage, recorded as a {@link GameEvents.ScreenSwitch}.
+     * @param screen Screen to show, which may be the current one to restart it.
+     */
+    public void show(Screen screen) {
+        GameEvents.ScreenSwitch event = new GameEvents.ScreenSwitch();
+        event.begin();
+        if (current != null) current.deactivate();
+        Screen previous = current;
+        current = screen;
+        stage.setScene(screen.getScene());
+        screen.activate();
+        if (event.shouldCommit()) {
+            event.from = previous == null ? null : previous.getClass().getSimpleName();
+            event.to = screen.getClass().getSimpleName();
+            event.commit();
+        }
+    }
+
+    /**
+     * @param type Kind of screen.
+     * @param factory Creates the screen if there isn't one of this kind yet.
+     * @return The one screen of the given kind.
+     */
+    public <T extends Screen> T get(Class<T> type, Supplier<T> factory) {
+        return type.cast(screens.computeIfAbsent(type, key -> factory.get()));
+    }
+
+    public Menu menu() {
+        return get(Menu.class, () -> new Menu(this));
+    }
+
+    public TraceGame traceGame() {
+        return get(TraceGame.class, () -> new TraceGame(this));
+    }
+
+    /**
+     * @return The one hover game screen that replays recordings, see {@link TraceGame#loadReplay}.
+     */
+    public synchronized TraceGame replay() {
+        if (replay == null) replay = new TraceGame(this, true);
+        return replay;
+    }
+
+    public TraceGameResults traceGameResults() {
+        return get(TraceGameResults.class, () -> new TraceGameResults(this));
+    }
+
+    public ReactionGame reactionGame() {
+        return get(ReactionGame.class, () -> new ReactionGame(this));
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    public GameRegistry getGames() {
+        return games;
+    }
+
+    /**
+     * @return The screen on the stage, null before the first is shown.
+     */
+    public Screen getCurrent() {
+        return current;
+    }
+}
@@ -0,0 +1,279 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Records every frame of a {@link TraceGame} run so it can be audited and replayed with
+ * {@link SessionReplay}.
+ *
+ * Frames are written as fixed-size records into a preallocated off-heap buffer, which costs a handful
+ * of stores per frame. The buffer is sized for the run time at the most pulses a second the
+ * {@link FramePacing} can give, capped at MAX_RECORDED_MILLIS, so memory stays bounded however long the
+ * run. Frames past the end are dropped and counted, and the count is written to the file so a cut short
+ * recording can be told apart.
+ *
+ * At the end of the run the frames are encoded as deltas from the previous frame, zig-zag varint encoded,
+ * so a 60 Hz frame with the ball and mouse both moving takes around 10 bytes. Encoding only takes memory,
+ * so the recorder can be reused straight away, and writeInBackground() hands the encoded file to a writer
+ * thread, which only keeps the newest MAX_DEFAULT_FILES recordings in DEFAULT_DIRECTORY. File layout:
+ *  - header: MAGIC (int), VERSION (byte), run time in ms (long), ball speed (int), frame count (int),
+ *    dropped frame count (int, from version 2)
+ *  - per frame: varint deltas of pulse time (ns), ball x, ball y, ball radius, mouse x, mouse y, then a
+ *    flags byte. Positions are stored in 1/POSITION_SCALE px.
+ */
+public class SessionRecorder {
+    // Constants
+    public static final int MAGIC = 0x4D535243;  // "MSRC"
+    public static final byte VERSION = 2;
+    public static final int HEADER_BYTES = 4 + 1 + 8 + 4 + 4 + 4;
+    public static final int VERSION_1_HEADER_BYTES = HEADER_BYTES - 4;     // No dropped frame count
+    public static final int POSITION_SCALE = 16;
+    public static final int FIELDS = 6;     // Varint deltas per frame, before its flags byte
+    public static final int FLAG_IN_BALL = 1;
+    public static final int FLAG_MOUSE_ON_SCREEN = 2;
+    public static final Path DEFAULT_DIRECTORY = Paths.get(System.getProperty("user.home"), ".mouseskills", "replays");
+    private static final long MAX_RECORDED_MILLIS = 30 * 60 * 1000;
+    private static final int MAX_DEFAULT_FILES = 50;
+    private static final String FILE_PREFIX = "trace-";
+    private static final String FILE_SUFFIX = ".msr";
+    // One writer thread, only alive while there are files to write. It isn't a daemon, so a recording
+    // being written when the game closes is finished first.
+    private static final ExecutorService writer = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), task -> new Thread(task, "recording-writer"));
+    // Record layout: time (long), ball x, ball y, mouse x, mouse y (floats), radius (short), flags (byte)
+    private static final int RECORD_BYTES = 8 + 4 * 4 + 2 + 1;
+
+    // Properties
+    private final ByteBuffer frames;
+    private final int maxFrames;
+    private int frameCount = 0;
+    private int droppedFrames = 0;
+    private final long[] previous = new long[FIELDS];   // Reused by write() for delta encoding
+
+    /**
+     * Creates a recorder big enough for a run of the given length.
+     * @param runtimeMillis Length of the run in milliseconds.
+     * @param frameRate Most frames a second the run can have, see {@link FramePacing#getMaxPulseRate()}.
+     */
+    public SessionRecorder(long runtimeMillis, int frameRate) {
+        maxFrames = (int) framesFor(runtimeMillis, frameRate);
+        this.frames = ByteBuffer.allocateDirect(maxFrames * RECORD_BYTES).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * @param runtimeMillis Length of a run in milliseconds.
+     * @param frameRate Most frames a second the run can have.
+     * @return Whether this recorder can hold a whole run of that length.
+     */
+    public boolean canHold(long runtimeMillis, int frameRate) {
+        return maxFrames >= framesFor(runtimeMillis, frameRate);
+    }
+
+    /*
+    Frames to hold for a run, with a second to spare for pulses coming a little early.
+     */
+    private static long framesFor(long runtimeMillis, int frameRate) {
+        return Math.min(runtimeMillis, MAX_RECORDED_MILLIS) * frameRate / 1000 + frameRate;
+    }
+
+    /**
+     * Records one frame. Dropped, and counted, if the buffer is full.
+     */
+    public void record(long pulseNanos, double ballX, double ballY, int ballRadius,
+                       double mouseX, double mouseY, boolean mouseOnScreen, boolean inBall) {
+        if (frameCount >= maxFrames) {
+            droppedFrames++;
+            return;
+        }
+        int pos = frameCount * RECORD_BYTES;
+        frames.putLong(pos, pulseNanos);
+        frames.putFloat(pos + 8, (float) ballX);
+        frames.putFloat(pos + 12, (float) ballY);
+        frames.putFloat(pos + 16, (float) mouseX);
+        frames.putFloat(pos + 20, (float) mouseY);
+        frames.putShort(pos + 24, (short) ballRadius);
+        frames.put(pos + 26, (byte) ((inBall ? FLAG_IN_BALL : 0) | (mouseOnScreen ? FLAG_MOUSE_ON_SCREEN : 0)));
+        frameCount++;
+    }
+
+    /**
+     * Discards all recorded frames.
+     */
+    public void clear() {
+        frameCount = 0;
+        droppedFrames = 0;
+    }
+
+    /**
+     * @return Number of frames recorded.
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return Number of frames that didn't fit in the buffer, 0 unless the recording was cut short.
+     */
+    public int getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * Encodes the recorded frames as the contents of a recording file.
+     * @param runtimeMillis Run time the game was set to.
+     * @param ballSpeed Ball speed the game was set to.
+     * @return The file contents, ready to be written.
+     */
+    public ByteBuffer encode(long runtimeMillis, int ballSpeed) {
+        // Work out the exact size first so the buffer is allocated once at its final length
+        int size = HEADER_BYTES + frameCount;     // One flags byte per frame
+        resetDeltas();
+        for (int i = 0; i < frameCount; i++) {
+            int pos = i * RECORD_BYTES;
+            for (int f = 0; f < FIELDS; f++) {
+                size += varintSize(delta(f, field(pos, f)));
+            }
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(MAGIC);
+        out.put(VERSION);
+        out.putLong(runtimeMillis);
+        out.putInt(ballSpeed);
+        out.putInt(frameCount);
+        out.putInt(droppedFrames);
+
+        resetDeltas();
+        for (int i = 0; i < frameCount; i++) {
+            int pos = i * RECORD_BYTES;
+            for (int f = 0; f < FIELDS; f++) {
+                putVarint(out, delta(f, field(pos, f)));
+            }
+            out.put(frames.get(pos + 26));
+        }
+        return out.flip();
+    }
+
+    /**
+     * Writes the recorded frames to a file, replacing it if it exists. Waits for the disk, see
+     * writeInBackground().
+     * @param file File to write to.
+     * @param runtimeMillis Run time the game was set to.
+     * @param ballSpeed Ball speed the game was set to.
+     * @throws IOException If the file can't be written.
+     */
+    public void write(Path file, long runtimeMillis, int ballSpeed) throws IOException {
+        writeFile(file, encode(runtimeMillis, ballSpeed));
+    }
+
+    /**
+     * Encodes the recorded frames and writes them to a new file in DEFAULT_DIRECTORY on the writer
+     * thread, then deletes all but the newest MAX_DEFAULT_FILES recordings there. Returns once the frames
+     * are encoded, so the recorder can be cleared straight away.
+     * @param written Given the file on the writer thread once it is written, or null if it couldn't be.
+     */
+    public void writeInBackground(long runtimeMillis, int ballSpeed, Consumer<Path> written) {
+        ByteBuffer contents = encode(runtimeMillis, ballSpeed);
+        Path file = DEFAULT_DIRECTORY.resolve(FILE_PREFIX + System.currentTimeMillis() + FILE_SUFFIX);
+        writer.execute(() -> {
+            try {
+                writeFile(file, contents);
+            } catch (IOException e) {
+                System.err.println("Couldn't write the recording " + file + ": " + e.getMessage());
+                written.accept(null);
+                return;
+            }
+            written.accept(file);
+            deleteOldRecordings();
+        });
+    }
+
+    /*
+    Writes a file's contents, replacing it if it exists, and waits for them to reach the disk.
+     */
+    private static void writeFile(Path file, ByteBuffer contents) throws IOException {
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (contents.hasRemaining()) channel.write(contents);
+            channel.force(false);
+        }
+    }
+
+    /*
+    Deletes all but the newest MAX_DEFAULT_FILES recordings in DEFAULT_DIRECTORY. The file names hold the
+    time they were written, all with the same number of digits, so they sort oldest first.
+     */
+    private static void deleteOldRecordings() {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(DEFAULT_DIRECTORY,
+                FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : stream) files.add(file);
+            Collections.sort(files);
+            for (int i = 0; i < files.size() - MAX_DEFAULT_FILES; i++) Files.deleteIfExists(files.get(i));
+        } catch (IOException e) {
+            System.err.println("Couldn't delete old recordings: " + e.getMessage());
+        }
+    }
+
+    /*
+    Reads field f of the record at pos as a whole number, positions in 1/POSITION_SCALE px.
+     */
+    private long field(int pos, int f) {
+        switch (f) {
+            case 0: return frames.getLong(pos);
+            case 1: return Math.round(frames.getFloat(pos + 8) * POSITION_SCALE);
+            case 2: return Math.round(frames.getFloat(pos + 12) * POSITION_SCALE);
+            case 3: return frames.getShort(pos + 24);
+            case 4: return Math.round(frames.getFloat(pos + 16) * POSITION_SCALE);
+            default: return Math.round(frames.getFloat(pos + 20) * POSITION_SCALE);
+        }
+    }
+
+    /*
+    Returns the zig-zag encoded difference between the value and the previous value of the field.
+     */
+    private long delta(int f, long value) {
+        long d = value - previous[f];
+        previous[f] = value;
+        return (d << 1) ^ (d >> 63);
+    }
+
+    private void resetDeltas() {
+        for (int f = 0; f < FIELDS; f++) previous[f] = 0;
+    }
+
+    /*
+    Number of bytes the value takes as a varint.
+     */
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+}
@@ -0,0 +1,176 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link TraceGame} run recorded by {@link SessionRecorder}, decoded into primitive arrays for replay.
+ */
+public class SessionReplay {
+    // Properties
+    private final long runtimeMillis;
+    private final int ballSpeed;
+    private final int frameCount;
+    private final long[] timeNanos;         // Time of each frame since the first
+    private final float[] ballX, ballY, mouseX, mouseY;
+    private final int[] ballRadius;
+    private final byte[] flags;
+    private final long[] timeOnBallNanos;   // Time on ball up to each frame
+
+    private SessionReplay(long runtimeMillis, int ballSpeed, int frameCount) {
+        this.runtimeMillis = runtimeMillis;
+        this.ballSpeed = ballSpeed;
+        this.frameCount = frameCount;
+        timeNanos = new long[frameCount];
+        ballX = new float[frameCount];
+        ballY = new float[frameCount];
+        mouseX = new float[frameCount];
+        mouseY = new float[frameCount];
+        ballRadius = new int[frameCount];
+        flags = new byte[frameCount];
+        timeOnBallNanos = new long[frameCount];
+    }
+
+    /**
+     * Reads a recording.
+     * @param file File written by {@link SessionRecorder#write}.
+     * @return The decoded recording.
+     * @throws IOException If the file can't be read or isn't a recording.
+     */
+    public static SessionReplay read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < SessionRecorder.VERSION_1_HEADER_BYTES || in.getInt() != SessionRecorder.MAGIC)
+                throw new IOException(file + " is not a recording");
+            byte version = in.get();
+            if (version != 1 && version != SessionRecorder.VERSION)
+                throw new IOException(file + " has unsupported version " + version);
+            if (version > 1 && in.remaining() < SessionRecorder.HEADER_BYTES - 5)
+                throw new IOException(file + " is truncated");
+
+            long runtimeMillis = in.getLong();
+            int ballSpeed = in.getInt();
+            int frameCount = in.getInt();
+            if (version > 1) in.getInt();   // Dropped frames, shown with the results when the run ends
+            // Every frame takes at least a byte per field and its flags
+            if (frameCount < 0 || frameCount > in.remaining() / (SessionRecorder.FIELDS + 1))
+                throw new IOException(file + " has a bad frame count " + frameCount);
+            SessionReplay replay = new SessionReplay(runtimeMillis, ballSpeed, frameCount);
+            long time = 0, x = 0, y = 0, radius = 0, mx = 0, my = 0;
+            float scale = SessionRecorder.POSITION_SCALE;
+            try {
+                for (int i = 0; i < replay.frameCount; i++) {
+                    time += getDelta(in);
+                    x += getDelta(in);
+                    y += getDelta(in);
+                    radius += getDelta(in);
+                    mx += getDelta(in);
+                    my += getDelta(in);
+                    replay.timeNanos[i] = time;
+                    replay.ballX[i] = x / scale;
+                    replay.ballY[i] = y / scale;
+                    replay.ballRadius[i] = (int) radius;
+                    replay.mouseX[i] = mx / scale;
+                    replay.mouseY[i] = my / scale;
+                    replay.flags[i] = in.get();
+                }
+            } catch (BufferUnderflowException e) {
+                throw new IOException(file + " is truncated", e);
+            }
+
+            // Make times relative to the first frame and add up the time on ball
+            long start = replay.frameCount > 0 ? replay.timeNanos[0] : 0;
+            for (int i = 0; i < replay.frameCount; i++) {
+                replay.timeNanos[i] -= start;
+                long onBall = i > 0 ? replay.timeOnBallNanos[i - 1] : 0;
+                if (i > 0 && replay.isInBall(i - 1)) onBall += replay.timeNanos[i] - replay.timeNanos[i - 1];
+                replay.timeOnBallNanos[i] = onBall;
+            }
+            return replay;
+        }
+    }
+
+    /**
+     * Finds the frame to show at a point in the replay.
+     * @param elapsedNanos Time since the first frame.
+     * @param fromFrame Frame to search forward from, e.g. the last frame shown.
+     * @return Index of the last frame at or before the given time.
+     */
+    public int frameAt(long elapsedNanos, int fromFrame) {
+        int i = Math.max(fromFrame, 0);
+        while (i + 1 < frameCount && timeNanos[i + 1] <= elapsedNanos) i++;
+        return i;
+    }
+
+    /**
+     * @return Whether the given time is past the last frame.
+     */
+    public boolean isFinished(long elapsedNanos) {
+        return frameCount == 0 || elapsedNanos > timeNanos[frameCount - 1];
+    }
+
+    public long getRuntimeMillis() {
+        return runtimeMillis;
+    }
+
+    public int getBallSpeed() {
+        return ballSpeed;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public long getTimeNanos(int frame) {
+        return timeNanos[frame];
+    }
+
+    public double getBallX(int frame) {
+        return ballX[frame];
+    }
+
+    public double getBallY(int frame) {
+        return ballY[frame];
+    }
+
+    public int getBallRadius(int frame) {
+        return ballRadius[frame];
+    }
+
+    public double getMouseX(int frame) {
+        return mouseX[frame];
+    }
+
+    public double getMouseY(int frame) {
+        return mouseY[frame];
+    }
+
+    public boolean isMouseOnScreen(int frame) {
+        return (flags[frame] & SessionRecorder.FLAG_MOUSE_ON_SCREEN) != 0;
+    }
+
+    public boolean isInBall(int frame) {
+        return (flags[frame] & SessionRecorder.FLAG_IN_BALL) != 0;
+    }
+
+    public long getTimeOnBallNanos(int frame) {
+        return timeOnBallNanos[frame];
+    }
+
+    /*
+    Reads a zig-zag varint.
+     */
+    private static long getDelta(MappedByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * The result of one finished run of a game, as stored in a {@link ResultsStore}. Fields that don't apply
+ * to a game are 0.
+ */
+public final class SessionResult {
+    // Properties
+    private final long timestampMillis;
+    private final int ballSpeed;
+    private final int ballRadius;
+    private final long runtimeMillis;
+    private final long scoreNanos;
+    private final float rmsError;
+    private final float maxExcursion;
+    private final long extraNanos;
+
+    /**
+     * @param timestampMillis When the run finished, as {@link System#currentTimeMillis()}.
+     * @param ballSpeed Ball speed setting.
+     * @param ballRadius Ball radius setting.
+     * @param runtimeMillis Run time setting.
+     * @param scoreNanos Main score: time on ball for the trace game, reaction time for the reaction game.
+     * @param rmsError RMS tracking error in px, trace game only.
+     * @param maxExcursion Furthest distance from the ball centre in px, trace game only.
+     * @param extraNanos Time on decoys for the trace game, dispatch delay of the press (scene filter to
+     *                   handler) for the reaction game (-1 if unknown).
+     */
+    public SessionResult(long timestampMillis, int ballSpeed, int ballRadius, long runtimeMillis,
+                         long scoreNanos, float rmsError, float maxExcursion, long extraNanos) {
+        this.timestampMillis = timestampMillis;
+        this.ballSpeed = ballSpeed;
+        this.ballRadius = ballRadius;
+        this.runtimeMillis = runtimeMillis;
+        this.scoreNanos = scoreNanos;
+        this.rmsError = rmsError;
+        this.maxExcursion = maxExcursion;
+        this.extraNanos = extraNanos;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public int getBallSpeed() {
+        return ballSpeed;
+    }
+
+    public int getBallRadius() {
+        return ballRadius;
+    }
+
+    public long getRuntimeMillis() {
+        return runtimeMillis;
+    }
+
+    public long getScoreNanos() {
+        return scoreNanos;
+    }
+
+    public float getRmsError() {
+        return rmsError;
+    }
+
+    public float getMaxExcursion() {
+        return maxExcursion;
+    }
+
+    public long getExtraNanos() {
+        return extraNanos;
+    }
+}
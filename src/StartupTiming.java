@@ -0,0 +1,103 @@
+import javafx.scene.Scene;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Times startup, from the JVM starting to the first frame of the menu, so regressions show up.
+ *
+ * Main marks each phase as it is reached. The first frame is taken as the first pulse after the menu
+ * is shown, once its layout is done and just before it is drawn. Each mark is then committed as a
+ * {@link GameEvents.StartupPhase} event, the report is printed if the PRINT_PROPERTY system property is
+ * true, and if the FILE_PROPERTY system property names a file a CSV line is appended to it, so runs can
+ * be compared over time. Nothing is printed or written otherwise.
+ *
+ * Times are wall clock milliseconds, as that is all the JVM start time is available in.
+ */
+public class StartupTiming {
+    // Constants
+    private static final String FILE_PROPERTY = "mouseskills.startupTimingFile";
+    private static final String PRINT_PROPERTY = "mouseskills.startupTiming";
+    private static final int MAX_MARKS = 16;
+
+    // Properties
+    private static final String[] names = new String[MAX_MARKS];
+    private static final long[] epochMillis = new long[MAX_MARKS];
+    private static int markCount = 0;
+
+    private StartupTiming() {
+    }
+
+    /**
+     * Notes that startup has reached the named phase. Marks after the first MAX_MARKS are ignored.
+     * @param name Name of the phase, used in the report.
+     */
+    public static synchronized void mark(String name) {
+        if (markCount == MAX_MARKS) return;
+        names[markCount] = name;
+        epochMillis[markCount] = System.currentTimeMillis();
+        markCount++;
+    }
+
+    /**
+     * Marks "first frame" and reports on the next pulse of the scene, then runs the given action.
+     * @param scene Scene that has just been shown.
+     * @param then Run once the report is done, e.g. to start loading things the first frame didn't need.
+     */
+    public static void reportOnFirstFrame(Scene scene, Runnable then) {
+        Runnable[] listener = new Runnable[1];
+        listener[0] = () -> {
+            scene.removePostLayoutPulseListener(listener[0]);
+            mark("first frame");
+            report();
+            then.run();
+        };
+        scene.addPostLayoutPulseListener(listener[0]);
+    }
+
+    /*
+    Commits an event for every mark, and if asked to prints the time of every mark since the JVM started
+    and appends them to the file named by FILE_PROPERTY. Loads the management classes, so only called once
+    the first frame is done.
+     */
+    private static synchronized void report() {
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        for (int i = 0; i < markCount; i++) {
+            GameEvents.StartupPhase event = new GameEvents.StartupPhase();
+            if (!event.shouldCommit()) break;
+            event.phase = names[i];
+            event.sinceJvmStart = epochMillis[i] - jvmStart;
+            event.commit();
+        }
+
+        String file = System.getProperty(FILE_PROPERTY);
+        boolean print = Boolean.getBoolean(PRINT_PROPERTY);
+        if (file == null && !print) return;
+
+        StringBuilder text = new StringBuilder("Startup:");
+        StringBuilder csv = new StringBuilder().append(jvmStart);
+        for (int i = 0; i < markCount; i++) {
+            long millis = epochMillis[i] - jvmStart;
+            text.append(i == 0 ? " " : ", ").append(names[i]).append(' ').append(millis).append("ms");
+            csv.append(',').append(millis);
+        }
+        if (print) System.out.println(text);
+
+        if (file == null) return;
+        Path path = Paths.get(file);
+        try {
+            if (!Files.exists(path)) {
+                StringBuilder header = new StringBuilder("jvm_start_epoch_ms");
+                for (int i = 0; i < markCount; i++) header.append(',').append(names[i].replace(' ', '_')).append("_ms");
+                Files.writeString(path, header.append(System.lineSeparator()));
+            }
+            Files.writeString(path, csv.append(System.lineSeparator()), StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Couldn't write startup timing to " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+import javafx.animation.AnimationTimer;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Shows the stimulus of {@link ReactionGame} on a chosen pulse, rather than whenever a timer happens to
+ * finish, so the moment it appears on screen is known.
+ *
+ * A change made while a pulse's animations run is drawn by that same pulse, so the stimulus is shown
+ * from an {@link AnimationTimer} and timed from that pulse's timestamp. Of the pulses around the target
+ * time the one closest to it is chosen, judged from the measured frame period, so a stimulus lands
+ * within half a frame of its target. How far each one landed is kept, to show how consistent the
+ * timing was.
+ */
+public class StimulusScheduler {
+    // Constants
+    private static final int FRAME_SMOOTHING = 8;   // Weight of the frame period estimate against a new frame
+
+    // Properties
+    private final LongConsumer onStimulus;
+    private final QuantileSketch offsets = new QuantileSketch();    // Distance of each stimulus from its target
+    private final AnimationTimer timer;
+    private long targetNanos = -1;
+    private long lastPulseNanos = -1;
+    private long frameNanos = FramePacing.current().getFrameNanos();   // Until pulses have been measured
+    private long lastOffsetNanos = 0;
+    private boolean scheduled = false;
+
+    /**
+     * @param onStimulus Shows the stimulus, given the timestamp of the pulse it is shown on, which is
+     *                   when timing should start.
+     */
+    public StimulusScheduler(LongConsumer onStimulus) {
+        this.onStimulus = onStimulus;
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                pulse(now);
+            }
+        };
+    }
+
+    /**
+     * Shows the stimulus on the pulse closest to the given time from now, replacing any stimulus
+     * already scheduled.
+     * @param delayNanos Time until the stimulus should be shown.
+     */
+    public void schedule(long delayNanos) {
+        targetNanos = System.nanoTime() + delayNanos;
+        lastPulseNanos = -1;
+        scheduled = true;
+        timer.start();
+    }
+
+    /**
+     * Stops the scheduled stimulus from being shown.
+     */
+    public void cancel() {
+        timer.stop();
+        scheduled = false;
+    }
+
+    public boolean isScheduled() {
+        return scheduled;
+    }
+
+    /**
+     * @return How far the last stimulus was shown from its target, positive if late.
+     */
+    public long getLastOffsetNanos() {
+        return lastOffsetNanos;
+    }
+
+    /**
+     * @return Measured time between pulses, smoothed over the last few frames.
+     */
+    public long getFrameNanos() {
+        return frameNanos;
+    }
+
+    /**
+     * @return Distribution of how far every stimulus was shown from its target, early or late.
+     */
+    public QuantileSketch getOffsets() {
+        return offsets;
+    }
+
+    /*
+    Shows the stimulus if the target is closer to this pulse than to the next one.
+     */
+    private void pulse(long now) {
+        if (lastPulseNanos >= 0) frameNanos += (now - lastPulseNanos - frameNanos) / FRAME_SMOOTHING;
+        lastPulseNanos = now;
+        if (now + frameNanos / 2 < targetNanos) return;
+
+        timer.stop();
+        scheduled = false;
+        lastOffsetNanos = now - targetNanos;
+        offsets.record(Math.abs(lastOffsetNanos));
+        onStimulus.accept(now);
+    }
+}
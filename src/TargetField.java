@@ -0,0 +1,273 @@
+import java.util.Random;
+
+/**
+ * A field of moving targets for the multi-target mode of {@link TraceGame}, where the player tracks the
+ * highlighted ball (the {@link TraceSimulation} ball) and avoids these.
+ *
+ * Target state is held in primitive arrays. Every step the targets are bucketed into a uniform grid
+ * (rebuilt with a counting sort, so without allocation) whose cells are at least as wide as a target and
+ * as far as one moves in a step. That makes hit testing a point only look at the 3x3 cells around it, and
+ * only targets in the cells next to a wall can reach it, so bounces only look at those.
+ */
+public class TargetField {
+    // Constants
+    private static final double MIN_CELL_SIZE = 8;
+
+    // Settings
+    private final Random random;
+    private final int capacity;
+    private int count = 0;
+    private double radius = 40;
+    private double speed = 3;               // px per step
+
+    // Play area
+    private double areaLeft = 0, areaTop = 0, areaRight = 800, areaBottom = 650;
+
+    // Target state
+    private final double[] x, y, prevX, prevY;
+    private final double[] dirX, dirY;      // Unit direction of travel
+    private final long[] nextChange;        // Simulation time of each target's next direction change
+    private long simTimeNanos = 0;
+
+    // Spatial index
+    private double cellSize;
+    private int columns, rows;
+    private int[] cellStart = new int[0];   // Index into cellItems of each cell's first target, plus an end marker
+    private final int[] cellItems;          // Target indices ordered by cell
+    private final int[] targetCell;
+
+    /**
+     * @param capacity Most targets the field can hold.
+     * @param seed Seed for target positions and directions.
+     */
+    public TargetField(int capacity, long seed) {
+        this.capacity = capacity;
+        random = new Random(seed);
+        x = new double[capacity];
+        y = new double[capacity];
+        prevX = new double[capacity];
+        prevY = new double[capacity];
+        dirX = new double[capacity];
+        dirY = new double[capacity];
+        nextChange = new long[capacity];
+        cellItems = new int[capacity];
+        targetCell = new int[capacity];
+        resizeGrid();
+    }
+
+    /**
+     * Restarts the random sequence behind target positions and directions, and the field's clock, so the
+     * next setCount() gives the same field as any other with the same seed.
+     */
+    public void reseed(long seed) {
+        random.setSeed(seed);
+        simTimeNanos = 0;
+    }
+
+    /**
+     * Sets the area the targets move in.
+     */
+    public void setBounds(double left, double top, double right, double bottom) {
+        areaLeft = left;
+        areaTop = top;
+        areaRight = right;
+        areaBottom = bottom;
+        resizeGrid();
+        for (int i = 0; i < count; i++) clamp(i);
+        rebuildGrid();
+    }
+
+    /**
+     * Sets the radius and speed of all targets.
+     * @param radius Radius of a target in px.
+     * @param speed Distance a target moves per step in px.
+     */
+    public void setTargetSettings(double radius, double speed) {
+        this.radius = radius;
+        this.speed = speed;
+        resizeGrid();
+        rebuildGrid();
+    }
+
+    /**
+     * Changes the number of targets and scatters them randomly over the play area.
+     * @param count Number of targets, at most the capacity.
+     */
+    public void setCount(int count) {
+        if (count < 0 || count > capacity)
+            throw new IllegalArgumentException("Target count must be between 0 and " + capacity + ": " + count);
+        this.count = count;
+        for (int i = 0; i < count; i++) {
+            x[i] = prevX[i] = areaLeft + radius + random.nextDouble() * Math.max(0, areaRight - areaLeft - 2 * radius);
+            y[i] = prevY[i] = areaTop + radius + random.nextDouble() * Math.max(0, areaBottom - areaTop - 2 * radius);
+            nextChange[i] = simTimeNanos;
+        }
+        rebuildGrid();
+    }
+
+    /**
+     * Moves every target one step, changing direction at random times and bouncing off the walls.
+     * @param stepNanos Length of the step.
+     */
+    public void step(long stepNanos) {
+        simTimeNanos += stepNanos;
+        for (int i = 0; i < count; i++) {
+            if (simTimeNanos >= nextChange[i]) {
+                double angle = random.nextDouble() * 2 * Math.PI;
+                dirX[i] = Math.cos(angle);
+                dirY[i] = Math.sin(angle);
+                // Don't head back into a wall the target is still bouncing off
+                bounce(i);
+                nextChange[i] = simTimeNanos + TraceSimulation.MIN_DIRECT_TIME
+                        + random.nextInt(TraceSimulation.MAX_DIRECT_TIME - TraceSimulation.MIN_DIRECT_TIME);
+            }
+            prevX[i] = x[i];
+            prevY[i] = y[i];
+            x[i] += dirX[i] * speed;
+            y[i] += dirY[i] * speed;
+        }
+        rebuildGrid();
+        bounceOffWalls();
+    }
+
+    /**
+     * Finds a target containing the given point.
+     * @return Index of a target containing the point, -1 if there is none.
+     */
+    public int hitTest(double px, double py) {
+        int col = column(px);
+        int row = row(py);
+        double r2 = radius * radius;
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rows - 1); r++) {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, columns - 1); c++) {
+                int cell = r * columns + c;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    int i = cellItems[k];
+                    double dx = px - x[i];
+                    double dy = py - y[i];
+                    if (dx * dx + dy * dy <= r2) return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public double getRadius() {
+        return radius;
+    }
+
+    public double getX(int target) {
+        return x[target];
+    }
+
+    public double getY(int target) {
+        return y[target];
+    }
+
+    /**
+     * @param interpolation Fraction of a step since the last step, 0 to 1.
+     * @return X coordinate to draw the target at.
+     */
+    public double getRenderX(int target, double interpolation) {
+        return prevX[target] + (x[target] - prevX[target]) * interpolation;
+    }
+
+    /**
+     * @param interpolation Fraction of a step since the last step, 0 to 1.
+     * @return Y coordinate to draw the target at.
+     */
+    public double getRenderY(int target, double interpolation) {
+        return prevY[target] + (y[target] - prevY[target]) * interpolation;
+    }
+
+    /*
+    Reverses any target heading into a wall it has reached. Only cells within radius + speed of a wall can
+    hold such a target, which with cells at least that wide is the outer one or two rings of cells.
+     */
+    private void bounceOffWalls() {
+        int lastLeftColumn = column(areaLeft + radius + speed);
+        int firstRightColumn = Math.max(column(areaRight - radius - speed), lastLeftColumn + 1);
+        int lastTopRow = row(areaTop + radius + speed);
+        int firstBottomRow = row(areaBottom - radius - speed);
+        for (int r = 0; r < rows; r++) {
+            if (r <= lastTopRow || r >= firstBottomRow) {
+                for (int c = 0; c < columns; c++) bounceCell(r * columns + c);
+            } else {
+                for (int c = 0; c <= lastLeftColumn; c++) bounceCell(r * columns + c);
+                for (int c = firstRightColumn; c < columns; c++) bounceCell(r * columns + c);
+            }
+        }
+    }
+
+    private void bounceCell(int cell) {
+        for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) bounce(cellItems[k]);
+    }
+
+    /*
+    Reverses the target if it has reached a wall and is heading into it.
+     */
+    private void bounce(int i) {
+        if ((dirX[i] < 0 && x[i] - radius <= areaLeft) || (dirX[i] > 0 && x[i] + radius >= areaRight)) {
+            dirX[i] = -dirX[i];
+        }
+        if ((dirY[i] < 0 && y[i] - radius <= areaTop) || (dirY[i] > 0 && y[i] + radius >= areaBottom)) {
+            dirY[i] = -dirY[i];
+        }
+    }
+
+    /*
+    Buckets every target into its grid cell with a counting sort.
+     */
+    private void rebuildGrid() {
+        int cells = columns * rows;
+        for (int c = 0; c <= cells; c++) cellStart[c] = 0;
+        for (int i = 0; i < count; i++) {
+            int cell = row(y[i]) * columns + column(x[i]);
+            targetCell[i] = cell;
+            cellStart[cell + 1]++;
+        }
+        for (int c = 0; c < cells; c++) cellStart[c + 1] += cellStart[c];
+        // Fill each cell from its end, leaving cellStart pointing at each cell's start
+        for (int i = count - 1; i >= 0; i--) {
+            cellItems[--cellStart[targetCell[i] + 1]] = i;
+        }
+        // Each cellStart[c + 1] now points at the start of cell c, shift them back into place
+        for (int c = 0; c < cells; c++) cellStart[c] = cellStart[c + 1];
+        cellStart[cells] = count;
+    }
+
+    /*
+    Works out the grid size for the current play area, radius and speed. Only allocates if the grid
+    grows.
+     */
+    private void resizeGrid() {
+        cellSize = Math.max(Math.max(2 * radius, radius + speed), MIN_CELL_SIZE);
+        columns = Math.max(1, (int) Math.ceil((areaRight - areaLeft) / cellSize));
+        rows = Math.max(1, (int) Math.ceil((areaBottom - areaTop) / cellSize));
+        if (cellStart.length < columns * rows + 1) cellStart = new int[columns * rows + 1];
+    }
+
+    private int column(double px) {
+        return Math.min(Math.max((int) ((px - areaLeft) / cellSize), 0), columns - 1);
+    }
+
+    private int row(double py) {
+        return Math.min(Math.max((int) ((py - areaTop) / cellSize), 0), rows - 1);
+    }
+
+    /*
+    Moves a target back inside the play area.
+     */
+    private void clamp(int i) {
+        x[i] = prevX[i] = Math.min(Math.max(x[i], areaLeft + radius), Math.max(areaRight - radius, areaLeft + radius));
+        y[i] = prevY[i] = Math.min(Math.max(y[i], areaTop + radius), Math.max(areaBottom - radius, areaTop + radius));
+    }
+}
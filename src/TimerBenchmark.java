@@ -0,0 +1,152 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Command line microbenchmark comparing {@link SimpleTimer} with {@link GameClock}.
+ *
+ * Reports the cost of a single per-frame update for each timer, then drives both timers at 60 Hz for
+ * a session (30 minutes by default) the way the game loop does, and reports how far each has drifted
+ * from a reference measurement of the same running time. GameClock is only given pulse timestamps, the
+ * time each frame was due, as the game loop only has the pulse's {@code now}. Every PAUSE_INTERVAL_SECONDS
+ * both timers are paused for PAUSE_FRAMES frames and resumed. The reference reads
+ * {@link System#nanoTime()} itself whenever the timers start or stop, so it doesn't share GameClock's
+ * timestamps.
+ *
+ * Usage: java TimerBenchmark [session length in seconds]
+ */
+public class TimerBenchmark {
+    // Constants
+    private static final int WARMUP_CALLS = 5_000_000;
+    private static final int MEASURED_CALLS = 20_000_000;
+    private static final long FRAME_NANOS = GameClock.NANOS_PER_SECOND / 60;
+    private static final int DEFAULT_SESSION_SECONDS = 30 * 60;
+    private static final int PROGRESS_INTERVAL_SECONDS = 60;
+    private static final int PAUSE_INTERVAL_SECONDS = 10;
+    private static final int PAUSE_FRAMES = 30;
+
+    // Stops the JIT from removing the benchmarked calls
+    private static double sink;
+
+    public static void main(String[] args) {
+        int sessionSeconds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SESSION_SECONDS;
+
+        System.out.println("Per-call cost");
+        System.out.printf("  SimpleTimer.updateValue + getTotalTime: %.1f ns%n", simpleTimerCallCost());
+        System.out.printf("  GameClock.getElapsedMillis(now):        %.1f ns%n", gameClockCallCost());
+        System.out.printf("  System.nanoTime (pulse timestamp):      %.1f ns%n", nanoTimeCallCost());
+
+        System.out.println();
+        System.out.println("Drift over a " + sessionSeconds + "s session at 60 Hz");
+        measureDrift(sessionSeconds);
+    }
+
+    /*
+    Average cost in ns of one SimpleTimer update, as called every frame by the old game loop.
+     */
+    private static double simpleTimerCallCost() {
+        SimpleTimer timer = new SimpleTimer();
+        timer.start();
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            timer.updateValue();
+            sink += timer.getTotalTime();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            timer.updateValue();
+            sink += timer.getTotalTime();
+        }
+        return (System.nanoTime() - start) / (double) MEASURED_CALLS;
+    }
+
+    /*
+    Average cost in ns of one GameClock read, including fetching a timestamp as the game loop would
+    receive one from the pulse.
+     */
+    private static double gameClockCallCost() {
+        GameClock clock = new GameClock();
+        clock.start();
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            sink += clock.getElapsedMillis(System.nanoTime());
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            sink += clock.getElapsedMillis(System.nanoTime());
+        }
+        return (System.nanoTime() - start) / (double) MEASURED_CALLS;
+    }
+
+    /*
+    Average cost in ns of System.nanoTime on its own, to separate the clock read from the timer logic.
+     */
+    private static double nanoTimeCallCost() {
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            sink += System.nanoTime();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            sink += System.nanoTime();
+        }
+        return (System.nanoTime() - start) / (double) MEASURED_CALLS;
+    }
+
+    /*
+    Drives both timers once per 60 Hz frame for the whole session, pausing and resuming them, and prints their error against the reference every PROGRESS_INTERVAL_SECONDS and at the end.
+     */
+    private static void measureDrift(int sessionSeconds) {
+        SimpleTimer simpleTimer = new SimpleTimer();
+        GameClock gameClock = new GameClock();
+
+        long sessionStart = System.nanoTime();
+        long pulse = sessionStart;
+        long referenceNanos = 0;            // Running time of the timers, up to runningSince
+        long runningSince = System.nanoTime();
+        boolean running = true;
+        simpleTimer.start();
+        gameClock.start(pulse);
+
+        long sessionNanos = sessionSeconds * GameClock.NANOS_PER_SECOND;
+        long framesPerPause = PAUSE_INTERVAL_SECONDS * GameClock.NANOS_PER_SECOND / FRAME_NANOS;
+        long nextReport = sessionStart + PROGRESS_INTERVAL_SECONDS * GameClock.NANOS_PER_SECOND;
+        for (long frame = 1; pulse - sessionStart < sessionNanos; frame++) {
+            // Sleep until the next frame is due, the pulse timestamp being when it was due
+            pulse = sessionStart + frame * FRAME_NANOS;
+            long wait = pulse - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+
+            long frameOfPause = frame % framesPerPause;
+            if (running && frameOfPause == 0) {
+                gameClock.pause(pulse);
+                simpleTimer.stop();
+                referenceNanos += System.nanoTime() - runningSince;
+                running = false;
+            } else if (!running && frameOfPause == PAUSE_FRAMES) {
+                gameClock.start(pulse);
+                simpleTimer.start();
+                runningSince = System.nanoTime();
+                running = true;
+            } else if (running) {
+                simpleTimer.updateValue();
+            }
+
+            if (pulse >= nextReport || pulse - sessionStart >= sessionNanos) {
+                long reference = referenceNanos + (running ? System.nanoTime() - runningSince : 0);
+                printDrift(reference, simpleTimer.getTotalTime(), gameClock.getElapsedNanos(pulse));
+                nextReport += PROGRESS_INTERVAL_SECONDS * GameClock.NANOS_PER_SECOND;
+            }
+        }
+    }
+
+    /*
+    Prints the error of each timer against the reference running time.
+     */
+    private static void printDrift(long referenceNanos, double simpleTimerMillis, long gameClockNanos) {
+        double referenceMillis = referenceNanos / (double) GameClock.NANOS_PER_MILLI;
+        double gameClockMillis = gameClockNanos / (double) GameClock.NANOS_PER_MILLI;
+        System.out.printf("  t=%6.0fs  SimpleTimer error: %+9.3f ms  GameClock error: %+9.3f ms%n",
+                referenceMillis / 1000.0,
+                simpleTimerMillis - referenceMillis,
+                gameClockMillis - referenceMillis);
+    }
+}
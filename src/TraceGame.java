@@ -1,51 +1,49 @@
 import javafx.animation.AnimationTimer;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.CacheHint;
 import javafx.scene.Group;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.Paint;
-import javafx.scene.shape.Circle;
 import javafx.scene.text.Font;
-import javafx.stage.Stage;
-import javafx.util.Duration;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.function.Consumer;
-import java.util.function.Supplier;
 
 /**
  * Class that models a ball somewhat randomly moving around a window, the aim is to hover the mouse
  * over the ball for as long as possible in the given time.
  * @author Matthew Whiteside
  */
-public class TraceGame {
+public class TraceGame implements Screen {
     // Application constants
-    private static final int MIN_DIRECT_TIME = 500000000; // 500 ms
-    private static final int MAX_DIRECT_TIME = 2000000000;// 2000 ms
     private static final Font LABEL_FONT = new Font("Verdana", 16);
     private static final double MILLIS_TO_SECOND_DIVIDER = 1000.0;
-    private static final double RGB_CHANGE_PERIOD = 0.25;
-    private static final double SCENE_RGB_DELAY = 0.25;
-    private static final Map<Color, Color> NEXT_COLOR_MAP = new HashMap<>() {{
-        put(Color.WHITE, Color.RED);
-        put(Color.RED, Color.GREEN);
-        put(Color.GREEN, Color.BLUE);
-        put(Color.BLUE, Color.RED);
-    }};
+    private static final long NANOS_PER_HUNDREDTH = GameClock.NANOS_PER_SECOND / 100;
+    private static final int HUD_VALUE_CELLS = 10;  // Characters reserved for the time label values
+    private static final int REPLAY_CURSOR_RADIUS = 4;
+    private static final int MAX_DECOY_SLIDER = 2000;
+    private static final Color DECOY_COLOUR = Color.GREY;
+    private static final long SCENE_RGB_DELAY = Palette.RGB_STEP_NANOS;   // Keeps the scene a colour behind the ball
+    private static final KeyCode PERF_OVERLAY_KEY = KeyCode.F3;
+    private static final int PERF_OVERLAY_UPDATE_FRAMES = 30;  // Refresh the overlay twice a second
+    private static final String FRAME_STATS_FILE_PROPERTY = "mouseskills.frameStatsFile";
+    private static final String RENDERER_PROPERTY = "mouseskills.renderer";    // "nodes" (default) or "canvas"
+    private static final String AGENT_PROPERTY = "mouseskills.agent";          // See MouseAgent.named()
+    private static final String HUD_LAYOUT_PROPERTY = "mouseskills.hudLayout"; // "overlay" (default) or "sidebar"
+    private static final double HUD_HEIGHT = 44;    // Room for the two time labels
 
     // Settings bar constants
-    private static final Label BALL_SPEED_LABEL = new Label("Ball speed");
-    private static final Label BALL_THICKNESS_LABEL = new Label("Ball thickness");
-    private static final Label RUNTIME_LABEL = new Label("Runtime");
-    private static final Label ON_BALL_COLOUR_LABEL = new Label("On ball colour");
-    private static final Label OFF_BALL_COLOUR_LABEL = new Label("Off ball colour");
-    private static final Label RGB_BALL_LABEL = new Label("RGB Ball: ");
-    private static final Label RGB_SCENE_LABEL = new Label("RGB Scene: ");
     private static final Insets SETTINGS_PADDING = new Insets(0, 10, 0, 10);
     // Formula = (windowHeight / X) * (windowHeight / Y) = top margin for settings elements
     private static final int SETTINGS_MARGIN_FORMULA_X = 100;
@@ -56,124 +54,279 @@ public class TraceGame {
     private int windowWidth = 800;
     private int windowHeight = 650;
     private int ballAreaLeftBoundary = windowWidth /4;
-    private final Label timeInBallLabel = new Label("Time in ball: 0.00");
-    private final Label timeLeftLabel = new Label("Time left: ");
-    private Scene scene;
+    private final HudLabel timeInBallLabel = new HudLabel("Time in ball: ", HUD_VALUE_CELLS, 2, LABEL_FONT);
+    private final HudLabel timeLeftLabel = new HudLabel("Time left: ", HUD_VALUE_CELLS, 2, LABEL_FONT);
+    private final VBox hud = new VBox(timeInBallLabel, timeLeftLabel);
+    private final Region hudSpace = new Region();   // Keeps the HUD's place in the settings bar
+    // The time labels used to be laid out with the settings, "sidebar" puts them back there to compare
+    private final boolean hudInSidebar = "sidebar".equals(System.getProperty(HUD_LAYOUT_PROPERTY));
+    private final ScreenManager screens;
+    private Scene scene = null;
+    private AnimationTimer animationTimer;
     private boolean mouseInCircle = false;
-    private long waitTillTime = -1;
-    private SimpleTimer timeTaken;
-    private SimpleTimer timeOnBall;
     private int runtime = 30000;
-    private Timeline RGBBallTimeline = null;
-    private Timeline RGBSceneTimeline = null;
+    private final ColorAnimator colours = new ColorAnimator();     // Ticked by the game loop
+    private final Palette steppedPalette = Palette.steppedRGB();
+    private final Palette huePalette = Palette.hueCycle();
     private boolean isBallRGB = false;
+    private final FrameStats frameStats = new FrameStats(FramePacing.current());
+    private GameEvents.TraceRun runEvent;   // Flight recorder event of the current run, from its start
+    private final Label perfOverlayLabel = new Label();
+    private final TraceSimulation simulation = new TraceSimulation();
+    private long lastPulseNanos = -1;
+    private SessionRecorder recorder;
+    private final boolean replaying;        // Replays recordings instead of playing
+    private SessionReplay replay = null;    // Recording being replayed
+    private double replaySpeed = 1;
+    private long replayStartNanos = -1;
+    private int replayFrame = 0;
 
     // Settings bar properties
+    private final Label ballSpeedLabel = new Label("Ball speed");
+    private final Label ballThicknessLabel = new Label("Ball thickness");
+    private final Label runtimeLabel = new Label("Runtime");
+    private final Label decoysLabel = new Label("Decoys");
+    private final Label seedLabel = new Label("Path seed (blank for random)");
+    private final Label curvedPathLabel = new Label("Curved path: ");
+    private final Label onBallColourLabel = new Label("On ball colour");
+    private final Label offBallColourLabel = new Label("Off ball colour");
+    private final Label rgbBallLabel = new Label("RGB Ball: ");
+    private final Label rgbSceneLabel = new Label("RGB Scene: ");
+    private final Label smoothRgbLabel = new Label("Smooth RGB: ");
     private ColorPicker offBallColourPicker;
     private ColorPicker onBallColourPicker;
     private Slider ballSpeedSlider;
     private Slider ballThicknessSlider;
+    private Slider decoySlider;
     private TextField runtimeTextField;
+    private final Label difficultyLabel = new Label();
+    private final Tooltip difficultyTooltip = new Tooltip();
+    private DifficultyTable difficultyTable;
+    private TextField seedTextField;
+    private CheckBox curvedPath;
     private Button applyButton;
     private Button backButton;
     private CheckBox RGBBall;
     private CheckBox RGBScene;
+    private CheckBox smoothRGB;
     private Insets settingsInsets;
+    private Node[] settingsMarginNodes;     // Settings with settingsInsets above them
+    private long layoutStartNanos;          // When the current pulse's CSS and layout started
+    private int settingsLayouts = 0;        // Layout passes of the settings bar in the current pulse
 
     // Ball properties
     private int ballSpeed = 3;
-    private Circle targetBall;
-    private int ballX, ballY;
-    private boolean right, down;
     private int circleRadius = 40;
     private Color circleColour = Color.RED;
     private Color circleActivationColour = Color.GREEN;
+    private Paint ballFill = circleColour;
+
+    // Decoy properties, the decoys themselves live in the simulation
+    private int decoyCount = 0;
+
+    // Path properties, an empty seed picks a new random one every run
+    private String seedSetting = "";
+    private Trajectory.Style pathStyle = Trajectory.Style.STRAIGHT;
+
+    // Draws the play area
+    private final TraceRenderer renderer = createRenderer();
+
+    /**
+     * Creates the game, a new run starts every time it is shown.
+     * @param screens Manager used to go back to the menu and show the results.
+     */
+    public TraceGame(ScreenManager screens) {
+        this(screens, false);
+    }
+
+    /**
+     * @param screens Manager used to go back to the menu and show the results.
+     * @param replaying Whether the game replays recorded runs, given to loadReplay(), instead of playing.
+     *                  The replay restarts every time it is shown.
+     */
+    public TraceGame(ScreenManager screens, boolean replaying) {
+        this.screens = screens;
+        this.replaying = replaying;
+        if (!replaying) simulation.setAgent(createAgent());
+    }
+
+    /**
+     * Sets the recording a replaying game shows next time it is shown.
+     * @param replay Recording to replay.
+     * @param speed Playback speed, 1 being the recorded speed.
+     */
+    public void loadReplay(SessionReplay replay, double speed) {
+        if (!replaying) throw new IllegalStateException("This game is played, not replayed");
+        this.replay = replay;
+        this.replaySpeed = speed;
+        ballSpeed = replay.getBallSpeed();
+        runtime = (int) replay.getRuntimeMillis();
+        if (replay.getFrameCount() > 0) circleRadius = replay.getBallRadius(0);
+
+        // Show the recording's settings if the settings bar has been built
+        if (scene != null) {
+            ballSpeedSlider.setValue(ballSpeed);
+            ballThicknessSlider.setValue(circleRadius);
+            runtimeTextField.setText(String.valueOf((int) (runtime / MILLIS_TO_SECOND_DIVIDER)));
+        }
+    }
 
     /**
-     * Creates the main scene used for the class.
+     * Creates the main scene used for the class on the first call.
      * @return {@link Scene} containing the ball trace application.
      */
-    public Scene createScene(Stage stage) {
+    @Override
+    public Scene getScene() {
+        if (scene != null) return scene;
+
         // Create a group, to hold objects
         Group root = new Group();
 
-        stage.setMinHeight(650);
-        stage.setMinWidth(800);
-
         // VBox holds the timer labels
-        VBox settings = createSettingsGUI(stage);
+        VBox settings = createSettingsGUI();
 
-        timeInBallLabel.setFont(LABEL_FONT);
-        timeLeftLabel.setFont(LABEL_FONT);
+        timeInBallLabel.setValue(0);
 
         // Creates a scene
         scene = new Scene(root, windowWidth, windowHeight);
 
-        timeOnBall = new SimpleTimer();
-        timeTaken = new SimpleTimer();
+        // Set up the simulation and start the ball in the centre of the play area
+        simulation.setSettings(ballSpeed, circleRadius, runtime);
+        simulation.setBounds(ballAreaLeftBoundary, 0, windowWidth, windowHeight);
+        startRun();
+        simulation.setDecoyCount(replaying ? 0 : decoyCount);
 
-        // Creates a targetBall
-        targetBall = createBall();
+        renderer.setPlayArea(ballAreaLeftBoundary, 0, windowWidth, windowHeight);
 
-        // Start the ball in the centre of the window
-        ballX = (int) ((windowWidth / 2) - (targetBall.getLayoutBounds().getWidth() / 2));
-        ballY = (int) ((windowHeight / 2) - (targetBall.getLayoutBounds().getWidth() / 2));
+        // Feed the mouse position to the simulation, which does the scoring
+        scene.addEventFilter(MouseEvent.MOUSE_MOVED, event -> simulation.setMousePosition(event.getSceneX(), event.getSceneY()));
+        scene.addEventFilter(MouseEvent.MOUSE_DRAGGED, event -> simulation.setMousePosition(event.getSceneX(), event.getSceneY()));
+        scene.addEventFilter(MouseEvent.MOUSE_EXITED_TARGET, event -> {
+            if (event.getTarget() == scene) simulation.clearMousePosition();
+        });
 
-        // Add the target ball and time labels to the scene
-        root.getChildren().addAll(targetBall, settings);
+        // Performance overlay, drawn over the ball area and toggled with PERF_OVERLAY_KEY
+        perfOverlayLabel.setLayoutX(ballAreaLeftBoundary + 10);
+        perfOverlayLabel.setLayoutY(5);
+        perfOverlayLabel.setMouseTransparent(true);
+        perfOverlayLabel.setVisible(false);
+        scene.addEventHandler(KeyEvent.KEY_PRESSED, event -> {
+            if (event.getCode() == PERF_OVERLAY_KEY) perfOverlayLabel.setVisible(!perfOverlayLabel.isVisible());
+        });
 
+        // Add the target ball and time labels to the scene
+        root.getChildren().addAll(renderer.getNode(), settings, perfOverlayLabel);
+        if (!hudInSidebar) {
+            isolateHud(settings);
+            root.getChildren().add(hud);
+        }
 
-        // Resize the GUI when the window is resized
-        scene.widthProperty().addListener((observable, oldValue, newValue) -> {
-            windowWidth = newValue.intValue();
-            double ballSize = targetBall.getLayoutBounds().getWidth();
+        // Time the CSS and layout part of every pulse, and count the settings bar's layout passes in it
+        scene.addPreLayoutPulseListener(() -> layoutStartNanos = System.nanoTime());
+        scene.addPostLayoutPulseListener(() -> {
+            frameStats.recordLayout(System.nanoTime() - layoutStartNanos, settingsLayouts);
+            settingsLayouts = 0;
+        });
+        settings.needsLayoutProperty().addListener((observable, oldValue, needsLayout) -> {
+            if (needsLayout) settingsLayouts++;
+        });
 
-            // Stop the ball getting caught in the edges of the window when resizing
-            if (ballX + ballSize / 2 >= windowWidth)
-                ballX = (int)(windowWidth - (ballSize/2) - 20);
+        if (replaying) {
+            // The settings can't be applied to a recording
+            applyButton.setDisable(true);
+        } else {
+            recorder = new SessionRecorder(runtime, FramePacing.current().getMaxPulseRate());
+        }
 
-            if (ballX - ballSize / 2 <= ballAreaLeftBoundary)
-                ballX = (int)(ballAreaLeftBoundary + (ballSize/2) + 20);
-        });
-        scene.heightProperty().addListener((observable, oldValue, newValue) -> {
-            windowHeight = newValue.intValue();
-            updateSettingsGUI(settings, newValue);
-            double ballSize = targetBall.getLayoutBounds().getWidth();
 
-            // Stop the ball getting caught in the edges of the window when resizing
-            if (ballY + ballSize / 2 >= windowHeight)
-                ballY = (int)(windowHeight - (ballSize/2) - 20);
+        // Resize the GUI when the window is resized, once a frame however many size changes there were
+        new LayoutInvalidator(scene, (width, height) -> layoutForSize(settings, (int) width, (int) height));
 
-            if (ballY - ballSize / 2 <= 0)
-                ballY = (int)((ballSize/2) + 20);
-        });
+        // Create main animation loop, it only runs while the game is showing
+        animationTimer = createGameLoop();
 
-        // Create main animation loop.
-        AnimationTimer animationTimer = createGameLoop(stage);
+        return scene;
+    }
 
-        // Start the overall time elapsed
-        timeTaken.start();
+    /**
+     * Starts a new run, or restarts the replay, and starts the game loop.
+     */
+    @Override
+    public void activate() {
+        screens.getStage().setMinHeight(650);
+        screens.getStage().setMinWidth(800);
 
-        // Start the animation loop.
+        lastPulseNanos = -1;
+        if (!replaying) {
+            reset();
+        } else {
+            replayStartNanos = -1;
+            replayFrame = 0;
+        }
+        applyRGB();
         animationTimer.start();
+    }
 
-        return scene;
+    /**
+     * Stops the game loop and clears the ColorAnimator targets, so no colours are animated while hidden.
+     */
+    @Override
+    public void deactivate() {
+        animationTimer.stop();
+        stopRGB();
+    }
+
+    /*
+    Takes the time labels out of the settings bar's layout. The HUD is unmanaged and has a fixed size, so
+    the text changing every frame only lays out the HUD, and it is drawn over an empty space of the same
+    size in the settings bar. The rest of the settings bar only changes when the player uses it, so it is
+    cached as a bitmap while the mouse isn't over it.
+     */
+    private void isolateHud(VBox settings) {
+        hudSpace.setMinHeight(HUD_HEIGHT);
+        hudSpace.setPrefHeight(HUD_HEIGHT);
+        hudSpace.setMaxHeight(HUD_HEIGHT);
+
+        hud.setManaged(false);
+        hud.setMouseTransparent(true);
+        hud.resize(ballAreaLeftBoundary - SETTINGS_PADDING.getLeft() - SETTINGS_PADDING.getRight(), HUD_HEIGHT);
+        // Follow the space when the settings bar is laid out again, e.g. after a resize
+        hud.layoutXProperty().bind(hudSpace.layoutXProperty());
+        hud.layoutYProperty().bind(hudSpace.layoutYProperty());
+
+        settings.setCache(true);
+        settings.setCacheHint(CacheHint.QUALITY);
+        settings.hoverProperty().addListener((observable, oldValue, hovered) -> settings.setCache(!hovered));
+    }
+
+    /*
+    Lays the game out for a new window size. Run by the LayoutInvalidator at most once a frame, so the
+    ball is clamped and the margins set once however many size changes a resize made.
+     */
+    private void layoutForSize(VBox settings, int width, int height) {
+        windowWidth = width;
+        if (height != windowHeight) {
+            windowHeight = height;
+            settings.setPrefHeight(windowHeight);
+            updateSettingsMargins();
+        }
+
+        // Stop the ball getting caught in the edges of the window when resizing
+        simulation.setBounds(ballAreaLeftBoundary, 0, windowWidth, windowHeight);
+        simulation.clampBallToBounds();
+        renderer.setPlayArea(ballAreaLeftBoundary, 0, windowWidth, windowHeight);
     }
 
-    private void updateSettingsGUI(VBox settings, Number newHeight) {
-        settings.setPrefHeight(newHeight.intValue());
+    /*
+    Sets the gap above each setting from the window height. The Insets are only replaced, and the
+    settings only laid out again, when the gap actually changes.
+     */
+    private void updateSettingsMargins() {
         int newTop = (windowHeight / SETTINGS_MARGIN_FORMULA_X) * (windowHeight / SETTINGS_MARGIN_FORMULA_Y);
+        if (settingsInsets != null && settingsInsets.getTop() == newTop) return;
         settingsInsets = new Insets(newTop, 0, 0, 0);
 
-        VBox.setMargin(OFF_BALL_COLOUR_LABEL, settingsInsets);
-        VBox.setMargin(ON_BALL_COLOUR_LABEL, settingsInsets);
-        VBox.setMargin(BALL_SPEED_LABEL, settingsInsets);
-        VBox.setMargin(BALL_THICKNESS_LABEL, settingsInsets);
-        VBox.setMargin(RUNTIME_LABEL, settingsInsets);
-        VBox.setMargin(RGB_BALL_LABEL, settingsInsets);
-        VBox.setMargin(RGB_SCENE_LABEL, settingsInsets);
-        VBox.setMargin(applyButton, settingsInsets);
-        VBox.setMargin(backButton, settingsInsets);
+        for (Node node : settingsMarginNodes) VBox.setMargin(node, settingsInsets);
     }
 
     /*
@@ -187,7 +340,7 @@ public class TraceGame {
      - Slider for ball thickness
      - Text box for runtime
      */
-    private VBox createSettingsGUI(Stage stage) {
+    private VBox createSettingsGUI() {
         VBox parent = new VBox();
 
         // Create colour picker and set its value to the current one
@@ -214,6 +367,15 @@ public class TraceGame {
         ballThicknessSlider.setShowTickLabels(true);
         ballThicknessSlider.setValue(circleRadius);
 
+        // Create the decoy count slider, 0 plays the normal single ball game
+        decoySlider = new Slider();
+        decoySlider.setMin(0);
+        decoySlider.setMax(MAX_DECOY_SLIDER);
+        decoySlider.setShowTickMarks(true);
+        decoySlider.setShowTickLabels(true);
+        decoySlider.setMajorTickUnit(MAX_DECOY_SLIDER / 2.0);
+        decoySlider.setValue(decoyCount);
+
         // Create the textfield that takes the runtime input
         // Note: the text property means that only numbers can be entered into the text field
         runtimeTextField = new TextField();
@@ -224,8 +386,28 @@ public class TraceGame {
             }
         });
 
+        // Rate the difficulty of the settings as they are changed, from the calibration sweep
+        difficultyTable = DifficultyTable.loadDefault();
+        difficultyLabel.setTooltip(difficultyTooltip);
+        difficultyLabel.setVisible(difficultyTable != null);
+        ballSpeedSlider.valueProperty().addListener((observable, oldValue, newValue) -> updateDifficulty());
+        ballThicknessSlider.valueProperty().addListener((observable, oldValue, newValue) -> updateDifficulty());
+        runtimeTextField.textProperty().addListener((observable, oldValue, newValue) -> updateDifficulty());
+        updateDifficulty();
+
+        // Create the seed text field, only whole numbers can be entered
+        seedTextField = new TextField(seedSetting);
+        seedTextField.textProperty().addListener((observable, oldValue, newValue) -> {
+            if(!newValue.matches("-?\\d*")) {
+                seedTextField.setText(oldValue);
+            }
+        });
+        curvedPath = new CheckBox();
+        curvedPath.setSelected(pathStyle == Trajectory.Style.CURVED);
+
         RGBBall = new CheckBox();
         RGBScene = new CheckBox();
+        smoothRGB = new CheckBox();
 
         // Create apply button that updates variables about the scene and resets the scene.
         applyButton = new Button("Apply & reset");
@@ -235,49 +417,40 @@ public class TraceGame {
             circleActivationColour = onBallColourPicker.getValue();
             ballSpeed = (int) ballSpeedSlider.getValue();
             circleRadius = (int) ballThicknessSlider.getValue();
+            decoyCount = (int) decoySlider.getValue();
+            seedSetting = seedTextField.getText();
+            pathStyle = curvedPath.isSelected() ? Trajectory.Style.CURVED : Trajectory.Style.STRAIGHT;
             runtime = (int) (Integer.valueOf(runtimeTextField.getText()) * MILLIS_TO_SECOND_DIVIDER);
 
-            stopRGB();
-
-            if(RGBBall.isSelected()) {
-                makeRGB(targetBall);
-                isBallRGB = true;
-            }
-            if(RGBScene.isSelected()) {
-                makeRGB(scene);
-            }
-
+            applyRGB();
             reset();
         });
 
         backButton = new Button("Back");
         backButton.setPrefWidth(Double.MAX_VALUE);
-        backButton.setOnAction(event -> stage.setScene(new Menu().createScene(stage)));
+        backButton.setOnAction(event -> screens.show(screens.menu()));
 
         // Changing the fonts of the labels and the buttons
-        OFF_BALL_COLOUR_LABEL.setFont(LABEL_FONT);
-        ON_BALL_COLOUR_LABEL.setFont(LABEL_FONT);
-        BALL_SPEED_LABEL.setFont(LABEL_FONT);
-        BALL_THICKNESS_LABEL.setFont(LABEL_FONT);
-        RUNTIME_LABEL.setFont(LABEL_FONT);
-        RGB_BALL_LABEL.setFont(LABEL_FONT);
-        RGB_SCENE_LABEL.setFont(LABEL_FONT);
+        offBallColourLabel.setFont(LABEL_FONT);
+        onBallColourLabel.setFont(LABEL_FONT);
+        ballSpeedLabel.setFont(LABEL_FONT);
+        ballThicknessLabel.setFont(LABEL_FONT);
+        runtimeLabel.setFont(LABEL_FONT);
+        difficultyLabel.setFont(LABEL_FONT);
+        decoysLabel.setFont(LABEL_FONT);
+        seedLabel.setFont(LABEL_FONT);
+        curvedPathLabel.setFont(LABEL_FONT);
+        rgbBallLabel.setFont(LABEL_FONT);
+        rgbSceneLabel.setFont(LABEL_FONT);
+        smoothRgbLabel.setFont(LABEL_FONT);
         applyButton.setFont(LABEL_FONT);
         backButton.setFont(LABEL_FONT);
 
-        int newTop = (windowHeight / SETTINGS_MARGIN_FORMULA_X) * (windowHeight / SETTINGS_MARGIN_FORMULA_Y);
-        settingsInsets = new Insets(newTop, 0, 0, 0);
-
-        // Adding 20px padding above all the labels and 30px above the button
-        VBox.setMargin(OFF_BALL_COLOUR_LABEL, settingsInsets);
-        VBox.setMargin(ON_BALL_COLOUR_LABEL, settingsInsets);
-        VBox.setMargin(BALL_SPEED_LABEL, settingsInsets);
-        VBox.setMargin(BALL_THICKNESS_LABEL, settingsInsets);
-        VBox.setMargin(RUNTIME_LABEL, settingsInsets);
-        VBox.setMargin(RGB_BALL_LABEL, settingsInsets);
-        VBox.setMargin(RGB_SCENE_LABEL, settingsInsets);
-        VBox.setMargin(applyButton, settingsInsets);
-        VBox.setMargin(backButton, settingsInsets);
+        // Padding above all the labels and the buttons, which grows with the window
+        settingsMarginNodes = new Node[] {offBallColourLabel, onBallColourLabel, ballSpeedLabel, ballThicknessLabel,
+                runtimeLabel, decoysLabel, seedLabel, curvedPathLabel, rgbBallLabel, rgbSceneLabel, smoothRgbLabel,
+                applyButton, backButton};
+        updateSettingsMargins();
 
         // Setting styles for the VBox and adding all the elements to it
         parent.setAlignment(Pos.CENTER_LEFT);
@@ -285,14 +458,19 @@ public class TraceGame {
         parent.setStyle("-fx-background-color: mintcream");
         parent.setPrefSize(ballAreaLeftBoundary, windowHeight);
         parent.getChildren().addAll(
-                timeInBallLabel, timeLeftLabel,
-                OFF_BALL_COLOUR_LABEL, offBallColourPicker,
-                ON_BALL_COLOUR_LABEL, onBallColourPicker,
-                BALL_SPEED_LABEL, ballSpeedSlider,
-                BALL_THICKNESS_LABEL, ballThicknessSlider,
-                RUNTIME_LABEL, runtimeTextField,
-                RGB_BALL_LABEL, RGBBall,
-                RGB_SCENE_LABEL, RGBScene,
+                hudInSidebar ? hud : hudSpace,
+                offBallColourLabel, offBallColourPicker,
+                onBallColourLabel, onBallColourPicker,
+                ballSpeedLabel, ballSpeedSlider,
+                ballThicknessLabel, ballThicknessSlider,
+                runtimeLabel, runtimeTextField,
+                difficultyLabel,
+                decoysLabel, decoySlider,
+                seedLabel, seedTextField,
+                curvedPathLabel, curvedPath,
+                rgbBallLabel, RGBBall,
+                rgbSceneLabel, RGBScene,
+                smoothRgbLabel, smoothRGB,
                 applyButton, backButton
         );
 
@@ -304,201 +482,284 @@ public class TraceGame {
      */
     private void reset() {
         // Change some target ball properties
-        targetBall.setFill(offBallColourPicker.getValue());
-        targetBall.setRadius(ballThicknessSlider.getValue());
-
-        // Reset both the timers
-        timeTaken.stop();
-        timeTaken.reset();
-        timeOnBall.stop();
-        timeOnBall.reset();
-
-        // Start the timer overall runtime timer, set the text to 0 for the other one.
-        timeTaken.start();
-        timeInBallLabel.setText("Time in ball: 0.00");
+        ballFill = offBallColourPicker.getValue();
+
+        // Restart the run with the new settings, set the time in ball text to 0.
+        simulation.setSettings(ballSpeed, circleRadius, runtime);
+        startRun();
+        simulation.setDecoyCount(decoyCount);
+        frameStats.reset();
+        int frameRate = FramePacing.current().getMaxPulseRate();
+        if (recorder.canHold(runtime, frameRate)) recorder.clear();
+        else recorder = new SessionRecorder(runtime, frameRate);
+        timeInBallLabel.setValue(0);
     }
 
     /*
-    Given a circle c makes the ball change in the sequence red-green-blue every RGB_CHANGE_PERIOD ms.
+    Starts the path from the centre of the play area, using the seed setting or a new random seed if it
+    is empty, so runs with the same seed and settings have the same path.
      */
-    private void makeRGB(Circle c) {
-        makeRGB(c::getFill, c::setFill, true);
+    private void startRun() {
+        long seed = seedSetting.isEmpty() || seedSetting.equals("-") ? new Random().nextLong() : parseSeed(seedSetting);
+        simulation.setPath(seed, pathStyle);
+        simulation.centreBall();
+        simulation.reset();
+        runEvent = new GameEvents.TraceRun();
+        runEvent.begin();
     }
 
     /*
-    Given a scene s makes the scene change in the sequence red-green-blue every RGB_CHANGE_PERIOD ms.
+    Shows how hard the settings on the sliders are, as measured for a model player by CalibrationSweep.
      */
-    private void makeRGB(Scene s) {
-        makeRGB(s::getFill, s::setFill, false);
+    private void updateDifficulty() {
+        if (difficultyTable == null) return;
+        String runtimeText = runtimeTextField.getText();
+        double runtimeSeconds = runtimeText.isEmpty() ? runtime / MILLIS_TO_SECOND_DIVIDER : Double.parseDouble(runtimeText);
+        double onBall = difficultyTable.getOnBallFraction(ballSpeedSlider.getValue(), ballThicknessSlider.getValue(),
+                runtimeSeconds);
+        difficultyLabel.setText("Difficulty: " + DifficultyTable.rating(onBall));
+        difficultyTooltip.setText(Double.isNaN(onBall) ? "Not calibrated"
+                : String.format("A model player stays on the ball %.0f%% of the time", onBall * 100));
     }
 
     /*
-    Changes the updater value every RGB_CHANGE_PERIOD ms to the relevant colour in the NEXT_COLOR_MAP.
-    Third param is true iff the ball is being made RGB, not the scene.
+    Reads a seed typed into the settings, anything too long for a long is hashed instead.
      */
-    private void makeRGB(Supplier<Paint> currentFill, Consumer<Paint> updater, boolean ball) {
-        if(ball) {
-            RGBBallTimeline = new Timeline(new KeyFrame(Duration.seconds(RGB_CHANGE_PERIOD),
-                    event -> updater.accept(NEXT_COLOR_MAP.get(currentFill.get()))));
-            RGBBallTimeline.setCycleCount(Timeline.INDEFINITE);
-            RGBBallTimeline.play();
-        } else {
-            RGBSceneTimeline = new Timeline(new KeyFrame(Duration.seconds(RGB_CHANGE_PERIOD),
-                    event -> updater.accept(NEXT_COLOR_MAP.get(currentFill.get()))));
-            RGBSceneTimeline.setCycleCount(Timeline.INDEFINITE);
-            RGBSceneTimeline.setDelay(Duration.seconds(SCENE_RGB_DELAY));
-            RGBSceneTimeline.play();
+    private static long parseSeed(String text) {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return text.hashCode();
         }
     }
 
     /*
-    Stops both RGB timelines and sets them to null.
+    Animates the ball and scene colours ticked in the settings, stepping through red, green and blue or
+    smoothly round the colour wheel, replacing any animation already running.
      */
-    private void stopRGB() {
-        if(RGBBallTimeline != null) {
-            RGBBallTimeline.stop();
-            RGBBallTimeline = null;
-            isBallRGB = false;
+    private void applyRGB() {
+        stopRGB();
+
+        Palette palette = smoothRGB.isSelected() ? huePalette : steppedPalette;
+        if(RGBBall.isSelected()) {
+            colours.add(palette, 0, fill -> ballFill = fill);
+            isBallRGB = true;
         }
-        if(RGBSceneTimeline != null) {
-            RGBSceneTimeline.stop();
-            RGBSceneTimeline = null;
-            scene.setFill(Color.WHITE);
+        if(RGBScene.isSelected()) {
+            colours.add(palette, -SCENE_RGB_DELAY, scene::setFill);
         }
     }
 
+    /*
+    Stops animating the ball and scene colours.
+     */
+    private void stopRGB() {
+        if (colours.getTargetCount() == 0) return;
+        colours.clear();
+        isBallRGB = false;
+        scene.setFill(Color.WHITE);
+    }
+
     /*
     Creates the main game loop.
      */
-    private AnimationTimer createGameLoop(Stage stage) {
-        // Note: target and therefore max fps = 60
+    private AnimationTimer createGameLoop() {
+        // Pulses come at the rate set by FramePacing, the simulation keeps its own fixed step whatever it is
         return new AnimationTimer() {
             @Override
             public void handle(long now) {
+                long handleStart = System.nanoTime();
+                colours.tick(now);
+
+                if (replaying) {
+                    renderReplay(now);
+                    frameStats.record(now, handleStart, System.nanoTime());
+                    return;
+                }
+
+                // Run as many fixed simulation steps as the real time since the last pulse covers, so the
+                // ball moves at the same speed whatever the frame rate.
+                if (lastPulseNanos < 0) lastPulseNanos = now;
+                simulation.advance(now - lastPulseNanos);
+                lastPulseNanos = now;
+
                 // Check we're still under the set number of seconds
-                timeTaken.updateValue();
-                if(timeTaken.getTotalTime() >= runtime) {
-                    stage.setScene(new TraceGameResults().createScene(
-                            millisToSeconds(timeOnBall.getTotalTime()),
-                            millisToSeconds(runtime),
-                            String.valueOf(ballSpeed),
-                            String.valueOf(circleRadius),
-                            stage
-                    ));
-                    this.stop();
+                if(simulation.isFinished()) {
+                    finishRun();
+                    return;
                 } else {
-                    timeLeftLabel.setText("Time left: " + millisToSeconds(runtime - timeTaken.getTotalTime()));
+                    timeLeftLabel.setValue(nanosToHundredths(simulation.getRuntimeNanos() - simulation.getSimTimeNanos()));
                 }
 
+                // Change the ball colour when the mouse moves onto or off the ball
+                if (simulation.isMouseInBall() != mouseInCircle) {
+                    mouseInCircle = simulation.isMouseInBall();
+                    if(!isBallRGB) ballFill = mouseInCircle ? circleActivationColour : circleColour;
+                }
 
                 // If the mouse is in the circle, update the time in ball label.
                 if(mouseInCircle) {
-                    timeOnBall.updateValue();
-                    timeInBallLabel.setText("Time in ball: " + millisToSeconds(timeOnBall.getTotalTime()));
+                    timeInBallLabel.setValue(nanosToHundredths(simulation.getTimeOnBallNanos()));
                 }
 
-                // If the current time has surpassed the wait till time, change the direction of the ball.
-                if (now >= waitTillTime) {
-                    waitTillTime = now + genRandTime(MIN_DIRECT_TIME, MAX_DIRECT_TIME);
-                    changeDirection();
+                // Render the ball and decoys between their last two simulated positions
+                renderer.beginFrame();
+                renderer.drawDecoys(simulation.getDecoys(), simulation.getInterpolation(), DECOY_COLOUR);
+                renderer.drawBall(simulation.getRenderX(), simulation.getRenderY(), circleRadius, ballFill);
+                renderer.endFrame();
+                recorder.record(now, simulation.getRenderX(), simulation.getRenderY(), circleRadius,
+                        simulation.getMouseX(), simulation.getMouseY(), simulation.isMouseOnScreen(), mouseInCircle);
+
+                frameStats.record(now, handleStart, System.nanoTime());
+                if (perfOverlayLabel.isVisible() && frameStats.getFrameCount() % PERF_OVERLAY_UPDATE_FRAMES == 0) {
+                    perfOverlayLabel.setText(frameStats.summary());
                 }
-
-                // If the ball is going out of bounds, stop it!
-                stopBallOOB();
-
-                // Change the balls coordinates according to new values
-                moveBall();
-
-                // Render the new ball into the scene
-                targetBall.setCenterX(ballX);
-                targetBall.setCenterY(ballY);
             }
         };
     }
 
     /*
-    Converts milliseconds into a formatted string to two decimal places.
+    Saves the finished run and shows its results, which stops the game loop. Package-private so
+    ScreenLeakCheck can finish runs without playing them.
      */
-    private String millisToSeconds(double millis) {
-        return String.format("%.2f", millis / MILLIS_TO_SECOND_DIVIDER);
+    void finishRun() {
+        writeFrameStats();
+        commitRunEvent();
+        SessionResult result = storeResult();
+        TraceGameResults results = screens.traceGameResults();
+        results.setResults(
+                millisToSeconds(simulation.getTimeOnBallNanos() / (double) GameClock.NANOS_PER_MILLI),
+                millisToSeconds(runtime),
+                String.valueOf(ballSpeed),
+                String.valueOf(circleRadius),
+                simulation.getScore(),
+                result,
+                simulation.getSeed(),
+                recorder.getDroppedFrames()
+        );
+        // The recording is written in the background, the results can replay it once it has been
+        recorder.writeInBackground(runtime, ballSpeed,
+                file -> Platform.runLater(() -> results.setRecording(result, file)));
+        screens.show(results);
     }
 
     /*
-    Creates the ball object that is traced.
+    Shows the frame of the replay due at the given pulse, at replaySpeed. The last frame stays on screen
+    once the replay has finished.
      */
-    private Circle createBall() {
-        // Create the ball, set position and style
-        Circle ball = new Circle();
-        ball.setCenterX(ballX);
-        ball.setCenterY(ballY);
-        ball.setRadius(circleRadius);
-        ball.setFill(circleColour);
-
-        // When the mouse enters the ball, start the timeOnBall timer and set the colour to green
-        ball.setOnMouseEntered(event -> {
-            timeOnBall.start();
-            if(!isBallRGB) ball.setFill(circleActivationColour);
-            mouseInCircle = true;
-        });
+    private void renderReplay(long now) {
+        if (replay == null || replay.getFrameCount() == 0) return;
+        if (replayStartNanos < 0) replayStartNanos = now;
+        long elapsed = (long) ((now - replayStartNanos) * replaySpeed);
+        replayFrame = replay.frameAt(elapsed, replayFrame);
+
+        if (replay.isInBall(replayFrame) != mouseInCircle) {
+            mouseInCircle = replay.isInBall(replayFrame);
+            if(!isBallRGB) ballFill = mouseInCircle ? circleActivationColour : circleColour;
+        }
 
-        // When the mouse exits the ball, stop the timeOnBall timer and set the colour to red
-        ball.setOnMouseExited(event -> {
-            if(!isBallRGB) ball.setFill(circleColour);
-            timeOnBall.stop();
-            mouseInCircle = false;
-        });
-        return ball;
+        // Show where the player's mouse was
+        renderer.beginFrame();
+        renderer.drawBall(replay.getBallX(replayFrame), replay.getBallY(replayFrame),
+                replay.getBallRadius(replayFrame), ballFill);
+        if (replay.isMouseOnScreen(replayFrame)) {
+            renderer.drawCursor(replay.getMouseX(replayFrame), replay.getMouseY(replayFrame),
+                    REPLAY_CURSOR_RADIUS, Color.BLACK);
+        }
+        renderer.endFrame();
+
+        timeInBallLabel.setValue(nanosToHundredths(replay.getTimeOnBallNanos(replayFrame)));
+        timeLeftLabel.setValue(nanosToHundredths(
+                replay.getRuntimeMillis() * GameClock.NANOS_PER_MILLI - replay.getTimeNanos(replayFrame)));
     }
 
     /*
-    Generates a random time between min and max.
+    Adds this run to the results store, which writes it to disk in the background. Runs played by an
+    agent aren't stored, so they don't mix with the player's.
      */
-    private int genRandTime(int min, int max) {
-        // Generates an integer between min (inclusive) and max (exclusive)
-        return new Random().nextInt(max - min) + min;
+    private SessionResult storeResult() {
+        TrackingScore score = simulation.getScore();
+        SessionResult result = new SessionResult(System.currentTimeMillis(), ballSpeed, circleRadius, runtime,
+                simulation.getTimeOnBallNanos(), (float) score.getRmsError(), (float) score.getMaxExcursion(),
+                score.getDecoyNanos());
+        if (simulation.getAgent() == null) ResultsStore.appendWhenLoaded(ResultsStore.TRACE, result);
+        return result;
     }
 
     /*
-    Change the direction of the ball by randomly generating booleans for right and down.
+    Records the settings and score of the finished run as a flight recorder event, if a recording is running.
      */
-    private void changeDirection() {
-        // Randomly select if ball is going up, down, left, right
-        Random r = new Random();
-        right = r.nextBoolean();
-        down = r.nextBoolean();
+    private void commitRunEvent() {
+        runEvent.end();
+        if (!runEvent.shouldCommit()) return;
+        TrackingScore score = simulation.getScore();
+        runEvent.ballSpeed = ballSpeed;
+        runEvent.ballRadius = circleRadius;
+        runEvent.runtime = runtime;
+        runEvent.decoys = decoyCount;
+        runEvent.seed = simulation.getSeed();
+        runEvent.pathStyle = pathStyle.name();
+        runEvent.agent = simulation.getAgent() == null ? null : simulation.getAgent().getClass().getSimpleName();
+        runEvent.timeOnBall = simulation.getTimeOnBallNanos();
+        runEvent.timeOnDecoys = score.getDecoyNanos();
+        runEvent.rmsError = score.getRmsError();
+        runEvent.missedDeadlines = frameStats.getMissedDeadlines();
+        runEvent.framePacing = FramePacing.current().toString();
+        runEvent.achievedRate = frameStats.getAchievedRate();
+        runEvent.frameTimeStdDev = Math.round(frameStats.getGapStdDevNanos());
+        runEvent.inputToPhoton = frameStats.getInputToPhotonEstimateNanos();
+        runEvent.commit();
     }
 
     /*
-    Moves the ball in the given direction according to booleans right and left, by ballSpeed px.
+    Writes the frame statistics for this run to the file named by the FRAME_STATS_FILE_PROPERTY system
+    property, if it is set.
      */
-    private void moveBall() {
-        // Move the ball on the X axis
-        if (right) ballX += ballSpeed;
-        else ballX -= ballSpeed;
-
-        // Move the ball on the right axis
-        if (down) ballY += ballSpeed;
-        else ballY -= ballSpeed;
+    private void writeFrameStats() {
+        String file = System.getProperty(FRAME_STATS_FILE_PROPERTY);
+        if (file == null) return;
+        try {
+            frameStats.writeReport(Paths.get(file));
+        } catch (IOException e) {
+            System.err.println("Couldn't write frame stats to " + file + ": " + e.getMessage());
+        }
     }
 
     /*
-    Stops the ball going out of bounds. Detects if the ball is outside of the window, if is the direction
-    is changed and the ball is made to travel in the new direction for at least MIN_DIRECT_TIME ms.
+    Converts milliseconds into a formatted string to two decimal places.
      */
-    private void stopBallOOB() {
-        // Size of the ball
-        double ballSize = targetBall.getLayoutBounds().getWidth();
-
-        // If the ball has hit a horizontal wall
-        if (ballX + ballSize / 2 >= windowWidth || ballX - ballSize / 2 <= ballAreaLeftBoundary) {
-            right = !right;
-            waitTillTime += MIN_DIRECT_TIME;
-        }
+    private static String millisToSeconds(double millis) {
+        return String.format("%.2f", millis / MILLIS_TO_SECOND_DIVIDER);
+    }
+
+    /*
+    Converts nanoseconds into hundredths of a second, rounded to the nearest, for the HUD labels.
+     */
+    private static long nanosToHundredths(long nanos) {
+        return (nanos + NANOS_PER_HUNDREDTH / 2) / NANOS_PER_HUNDREDTH;
+    }
 
-        // If the ball has hit a vertical wall
-        if (ballY + ballSize / 2 >= windowHeight || ballY - ballSize / 2 <= 0) {
-            down = !down;
-            waitTillTime += MIN_DIRECT_TIME;
+    /*
+    Creates the agent named by the AGENT_PROPERTY system property to play instead of the mouse, or
+    returns null if it isn't set or names no agent.
+     */
+    private static MouseAgent createAgent() {
+        String name = System.getProperty(AGENT_PROPERTY);
+        if (name == null) return null;
+        try {
+            return MouseAgent.named(name);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Playing without an agent: " + e.getMessage());
+            return null;
         }
     }
+
+    /*
+    Creates the renderer named by the RENDERER_PROPERTY system property, drawing with scene graph nodes
+    unless it is "canvas".
+     */
+    private static TraceRenderer createRenderer() {
+        if ("canvas".equals(System.getProperty(RENDERER_PROPERTY))) return new CanvasTraceRenderer();
+        return new NodeTraceRenderer();
+    }
 }
@@ -0,0 +1,20 @@
+/**
+ * Menu entry for {@link TraceGame}.
+ */
+public class TraceGameModule implements GameModule {
+
+    @Override
+    public String getName() {
+        return "Trace test";
+    }
+
+    @Override
+    public int getMenuOrder() {
+        return 20;
+    }
+
+    @Override
+    public Screen getScreen(ScreenManager screens) {
+        return screens.traceGame();
+    }
+}
@@ -1,3 +1,4 @@
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -5,72 +6,226 @@ import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Font;
-import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.nio.file.Path;
 
 /**
  * Class to display the results after completing a play through of {@link TraceGame}.
  */
-public class TraceGameResults {
+public class TraceGameResults implements Screen {
 
     // Constants
-    private static final Label TITLE = new Label("YOUR RESULTS");
-    private static final Label TIME_ON_BALL_LABEL = new Label("Time on ball: ");
-    private static final Label TOTAL_RUNTIME_LABEL = new Label("Total runtime: ");
-    private static final Label BALL_SPEED_LABEL = new Label("Ball speed: ");
-    private static final Label BALL_THICKNESS_LABEL = new Label("Ball thickness ");
     private static final Font TITLE_FONT = new Font("Verdana", 20);
     private static final Font LABEL_FONT = new Font("Verdana", 16);
-    private static final int WINDOW_WIDTH = 250;
-    private static final int WINDOW_HEIGHT = 250;
+    private static final int WINDOW_WIDTH = 320;
+    private static final int WINDOW_HEIGHT = 600;
+    private static final double FAST_REPLAY_SPEED = 4;
 
     // Properties
+    private final ScreenManager screens;
+    private final Label title = new Label("YOUR RESULTS");
+    private final Label timeOnBallLabel = new Label("Time on ball: ");
+    private final Label totalRuntimeLabel = new Label("Total runtime: ");
+    private final Label ballSpeedLabel = new Label("Ball speed: ");
+    private final Label ballThicknessLabel = new Label("Ball thickness ");
+    private final Label rmsErrorLabel = new Label("Tracking error (RMS): ");
+    private final Label maxExcursionLabel = new Label("Furthest from centre: ");
+    private final Label decoyTimeLabel = new Label("Time on decoys: ");
+    private final Label historyLabel = new Label("Best at these settings: ");
+    private final Label percentilesLabel = new Label("p50 / p90 / p99: ");
+    private final Label seedLabel = new Label("Path seed: ");
+    private final Label recordingLabel = new Label("Recording cut short: ");
+    private final VBox parent = new VBox();
+    private Label[] ringLabels = new Label[0];  // One for the time within each ring, kept between runs
+    private Scene scene = null;
     private Button back;
+    private Button replay;
+    private Button fastReplay;
+    private SessionResult shownResult = null;
+    private Path replayFile = null;
 
     /**
-     * Creates a scene displaying time spent on ball, total runtime, ball speed and ball thickness.
-     * @param timeOnBall Time spent over the ball.
-     * @param totalTime Total runtime of the scene.
-     * @param ballSpeed Speed the ball was set to.
-     * @param ballThickness Thickness of the ball (radius)
-     * @param stage Stage to change the scene of when finished here.
+     * @param screens Manager used to go back to the game or show a replay.
+     */
+    public TraceGameResults(ScreenManager screens) {
+        this.screens = screens;
+    }
+
+    /**
+     * Creates the results scene on the first call, it shows the results last given to setResults().
      * @return Scene displaying time spent on ball, total runtime, ball speed and ball thickness.
      */
-    public Scene createScene(String timeOnBall, String totalTime, String ballSpeed, String ballThickness, Stage stage) {
-        // Populate the labels with data
-        TIME_ON_BALL_LABEL.setText("Time on ball: " + timeOnBall + "s");
-        TOTAL_RUNTIME_LABEL.setText("Total runtime: " + totalTime + "s");
-        BALL_SPEED_LABEL.setText("Ball speed: " + ballSpeed);
-        BALL_THICKNESS_LABEL.setText("Ball thickness: " + ballThickness);
+    @Override
+    public Scene getScene() {
+        if (scene != null) return scene;
 
         // Set the font of all the labels
-        TITLE.setFont(TITLE_FONT);
-        TIME_ON_BALL_LABEL.setFont(LABEL_FONT);
-        TOTAL_RUNTIME_LABEL.setFont(LABEL_FONT);
-        BALL_SPEED_LABEL.setFont(LABEL_FONT);
-        BALL_THICKNESS_LABEL.setFont(LABEL_FONT);
+        title.setFont(TITLE_FONT);
+        timeOnBallLabel.setFont(LABEL_FONT);
+        totalRuntimeLabel.setFont(LABEL_FONT);
+        ballSpeedLabel.setFont(LABEL_FONT);
+        ballThicknessLabel.setFont(LABEL_FONT);
+        seedLabel.setFont(LABEL_FONT);
+        recordingLabel.setFont(LABEL_FONT);
+        rmsErrorLabel.setFont(LABEL_FONT);
+        maxExcursionLabel.setFont(LABEL_FONT);
+        decoyTimeLabel.setFont(LABEL_FONT);
+        historyLabel.setFont(LABEL_FONT);
+        percentilesLabel.setFont(LABEL_FONT);
 
         // Create and style the back button
         back = new Button("Try again");
         back.setPrefWidth(Double.MAX_VALUE);
-        back.setOnAction(event -> stage.setScene(new TraceGame().createScene(stage)));
+        back.setOnAction(event -> screens.show(screens.traceGame()));
         back.setDefaultButton(true);
         back.setFont(LABEL_FONT);
 
-        // Create and style the parent layout
-        VBox parent = new VBox();
+        // Create and style the replay buttons, only usable if the run was recorded
+        replay = new Button("Watch replay");
+        replay.setPrefWidth(Double.MAX_VALUE);
+        replay.setOnAction(event -> showReplay(1));
+        replay.setFont(LABEL_FONT);
+        fastReplay = new Button("Watch replay (" + (int) FAST_REPLAY_SPEED + "x)");
+        fastReplay.setPrefWidth(Double.MAX_VALUE);
+        fastReplay.setOnAction(event -> showReplay(FAST_REPLAY_SPEED));
+        fastReplay.setFont(LABEL_FONT);
+
+        // Style the parent layout, its children are added by setResults()
         parent.setAlignment(Pos.CENTER);
         parent.setSpacing(10);
         parent.setPadding(new Insets(10));
+
+        scene = new Scene(parent, WINDOW_WIDTH, WINDOW_HEIGHT);
+        return scene;
+    }
+
+    /**
+     * Shows the results of a run, displaying time spent on ball, tracking statistics, total runtime, ball
+     * speed and ball thickness.
+     * @param timeOnBall Time spent over the ball.
+     * @param totalTime Total runtime of the scene.
+     * @param ballSpeed Speed the ball was set to.
+     * @param ballThickness Thickness of the ball (radius)
+     * @param score Tracking statistics for the run.
+     * @param result The run as stored in the {@link ResultsStore}, compared with earlier runs.
+     * @param seed Seed of the ball's path, to share with other players.
+     * @param droppedFrames Frames the run's recording had no room for, 0 unless it was cut short. The
+     *                      recording itself is given to setRecording() once it is written.
+     */
+    public void setResults(String timeOnBall, String totalTime, String ballSpeed, String ballThickness,
+                           TrackingScore score, SessionResult result, long seed, int droppedFrames) {
+        getScene();
+        shownResult = result;
+        replayFile = null;
+
+        // Populate the labels with data
+        timeOnBallLabel.setText("Time on ball: " + timeOnBall + "s");
+        totalRuntimeLabel.setText("Total runtime: " + totalTime + "s");
+        ballSpeedLabel.setText("Ball speed: " + ballSpeed);
+        ballThicknessLabel.setText("Ball thickness: " + ballThickness);
+        seedLabel.setText("Path seed: " + seed);
+        rmsErrorLabel.setText(String.format("Tracking error (RMS): %.1fpx", score.getRmsError()));
+        maxExcursionLabel.setText(String.format("Furthest from centre: %.1fpx", score.getMaxExcursion()));
+        // Past runs may still be loading, they are filled in once they have, after this run is stored
+        historyLabel.setText("Earlier runs are still loading");
+        percentilesLabel.setText("");
+        ResultsStore.whenLoaded(store -> showHistory(store, result));
+        decoyTimeLabel.setText(String.format("Time on decoys: %.2fs", score.getDecoyNanos() / (double) GameClock.NANOS_PER_SECOND));
+        recordingLabel.setText("Recording cut short: " + droppedFrames + " frames missing");
+        replay.setDisable(true);
+        fastReplay.setDisable(true);
+
+        // One label for the time within each ring, only created again if the number of rings changes
+        if (ringLabels.length != score.getRingCount()) {
+            ringLabels = new Label[score.getRingCount()];
+            for (int i = 0; i < ringLabels.length; i++) {
+                ringLabels[i] = new Label();
+                ringLabels[i].setFont(LABEL_FONT);
+            }
+        }
+        for (int i = 0; i < ringLabels.length; i++) {
+            ringLabels[i].setText(String.format("Within %.1fx radius: %.2fs",
+                    score.getRingFactor(i), score.getRingNanos(i) / (double) GameClock.NANOS_PER_SECOND));
+        }
+
+        parent.getChildren().setAll(
+                title,
+                timeOnBallLabel,
+                rmsErrorLabel,
+                maxExcursionLabel
+        );
+        parent.getChildren().addAll(ringLabels);
+        // Only runs with decoys can have touched one
+        if (score.getDecoyNanos() > 0) parent.getChildren().add(decoyTimeLabel);
         parent.getChildren().addAll(
-                TITLE,
-                TIME_ON_BALL_LABEL,
-                TOTAL_RUNTIME_LABEL,
-                BALL_SPEED_LABEL,
-                BALL_THICKNESS_LABEL,
-                back
+                historyLabel,
+                percentilesLabel,
+                totalRuntimeLabel,
+                ballSpeedLabel,
+                ballThicknessLabel,
+                seedLabel,
+                back,
+                replay,
+                fastReplay
         );
+        // Only recordings that ran out of room are missing frames
+        if (droppedFrames > 0) parent.getChildren().add(recordingLabel);
+    }
 
-        // Return the created scene
-        return new Scene(parent, WINDOW_WIDTH, WINDOW_HEIGHT);
+    /**
+     * Lets the results replay the recording of a run, once it has been written. Ignored if other
+     * results have been shown since.
+     * @param result The run, as given to setResults().
+     * @param file Recording of the run, null if it couldn't be written.
+     */
+    public void setRecording(SessionResult result, Path file) {
+        if (result != shownResult || file == null) return;
+        replayFile = file;
+        replay.setDisable(false);
+        fastReplay.setDisable(false);
+    }
+
+    /*
+    Shows the best time on ball out of every stored run with the same settings as the given one, and the
+    spread of their times.
+     */
+    private void showHistory(ResultsStore store, SessionResult result) {
+        ResultsLog log = store.getLog(ResultsStore.TRACE);
+        int[] runs = log.withSettings(result.getBallSpeed(), result.getBallRadius(), result.getRuntimeMillis());
+        long best = result.getScoreNanos();
+        for (int run : runs) best = Math.max(best, log.getScoreNanos(run));
+        historyLabel.setText(String.format("Best of %d at these settings: %.2fs", Math.max(runs.length, 1),
+                best / (double) GameClock.NANOS_PER_SECOND));
+
+        QuantileSketch history = store.getStatistics(ResultsStore.TRACE)
+                .getForSettings(result.getBallSpeed(), result.getBallRadius(), result.getRuntimeMillis());
+        percentilesLabel.setText(String.format("p50 / p90 / p99: %.2f / %.2f / %.2fs",
+                history.getQuantile(0.5) / (double) GameClock.NANOS_PER_SECOND,
+                history.getQuantile(0.9) / (double) GameClock.NANOS_PER_SECOND,
+                history.getQuantile(0.99) / (double) GameClock.NANOS_PER_SECOND));
+    }
+
+    /*
+    Replaces the scene with a replay of the recorded run at the given speed, on the one replay screen.
+    The recording is read on its own thread and only shown if the results are still on screen by then.
+     */
+    private void showReplay(double speed) {
+        Path file = replayFile;
+        Thread loader = new Thread(() -> {
+            try {
+                SessionReplay recording = SessionReplay.read(file);
+                Platform.runLater(() -> {
+                    if (screens.getCurrent() != this) return;
+                    TraceGame replayScreen = screens.replay();
+                    replayScreen.loadReplay(recording, speed);
+                    screens.show(replayScreen);
+                });
+            } catch (IOException e) {
+                System.err.println("Couldn't read the recording " + file + ": " + e.getMessage());
+            }
+        }, "replay-loader");
+        loader.setDaemon(true);
+        loader.start();
     }
 }
@@ -0,0 +1,47 @@
+import javafx.scene.Node;
+import javafx.scene.paint.Paint;
+
+/**
+ * Draws the play area of {@link TraceGame}: the ball, any decoys and the replay cursor.
+ *
+ * Each pulse the game calls beginFrame(), then the draw methods for what is on screen, then endFrame().
+ * Anything not drawn in a frame isn't shown. Coordinates are scene coordinates.
+ */
+public interface TraceRenderer {
+
+    /**
+     * @return Node to add to the scene, underneath the settings panel.
+     */
+    Node getNode();
+
+    /**
+     * Sets the area of the scene that is drawn to.
+     */
+    void setPlayArea(double left, double top, double right, double bottom);
+
+    /**
+     * Starts a frame.
+     */
+    void beginFrame();
+
+    /**
+     * Draws the ball being traced.
+     */
+    void drawBall(double x, double y, double radius, Paint fill);
+
+    /**
+     * Draws every decoy in the field.
+     * @param interpolation Fraction of a simulation step since the last step, 0 to 1.
+     */
+    void drawDecoys(TargetField decoys, double interpolation, Paint fill);
+
+    /**
+     * Draws the cursor showing where the player's mouse was, when replaying.
+     */
+    void drawCursor(double x, double y, double radius, Paint fill);
+
+    /**
+     * Finishes a frame, hiding anything that wasn't drawn in it.
+     */
+    void endFrame();
+}
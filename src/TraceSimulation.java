@@ -0,0 +1,420 @@
+import java.util.Random;
+
+/**
+ * Headless simulation of {@link TraceGame}: ball movement, bounds handling, run time and scoring (see
+ * {@link TrackingScore}).
+ * Has no JavaFX dependencies so it can be stepped, tested and benchmarked without a display;
+ * {@link TraceGame} only renders it.
+ *
+ * The simulation advances in fixed steps of STEP_NANOS. All state is held in primitive fields and
+ * stepping does not allocate. The ball follows a {@link Trajectory} generated from a seed when the run
+ * starts, so stepping involves no random numbers and the same seed always gives the same path.
+ *
+ * A {@link MouseAgent} can be plugged in to move the mouse instead of a player, it is asked for the
+ * mouse position before every step.
+ */
+public class TraceSimulation {
+    // Constants
+    public static final long STEP_NANOS = GameClock.NANOS_PER_SECOND / 60;
+    public static final int MIN_DIRECT_TIME = 500000000; // 500 ms
+    public static final int MAX_DIRECT_TIME = 2000000000;// 2000 ms
+    private static final int MAX_CATCH_UP_STEPS = 5;     // Most steps run by advance(), the rest is dropped
+    private static final int RESIZE_MARGIN = 20;         // Gap left between the ball and a wall it was moved off
+    public static final int MAX_DECOYS = 5000;
+
+    // Settings
+    private long seed;
+    private Trajectory.Style pathStyle = Trajectory.Style.STRAIGHT;
+    private Trajectory trajectory;
+    private int ballSpeed = 3;              // px per step
+    private int ballRadius = 40;
+    private long runtimeNanos = 30 * GameClock.NANOS_PER_SECOND;
+
+    // Play area
+    private double areaLeft = 0;
+    private double areaTop = 0;
+    private double areaRight = 800;
+    private double areaBottom = 650;
+
+    // Ball state
+    private double ballX, ballY;
+    private double prevBallX, prevBallY;    // Position before the last step, for interpolation
+    private double dirX, dirY;              // Direction of travel, per unit of ball speed
+    private double turnCos = 1, turnSin = 0;    // Rotation of the direction each step, for curved paths
+    private int segment = -1;               // Current segment of the trajectory
+    private long waitTillTime = -1;         // Simulation time of the next direction change
+    private long simTimeNanos = 0;
+    private long stepAccumulator = 0;       // Time passed to advance() not yet simulated
+
+    // Scoring state
+    private boolean mouseOnScreen = false;
+    private double mouseX, mouseY;
+    private boolean mouseInBall = false;
+    private boolean mouseOnDecoy = false;
+    private TrackingScore score = new TrackingScore();
+
+    // Decoy targets for the multi-target mode, none by default
+    private final TargetField decoys;
+
+    // Moves the mouse instead of the player, none by default
+    private MouseAgent agent = null;
+
+    /**
+     * Creates a simulation with a randomly chosen seed.
+     */
+    public TraceSimulation() {
+        this(new Random().nextLong());
+    }
+
+    /**
+     * Creates a simulation whose ball path and decoys are determined by the given seed.
+     * @param seed Seed for the path, see {@link Trajectory}.
+     */
+    public TraceSimulation(long seed) {
+        this.seed = seed;
+        decoys = new TargetField(MAX_DECOYS, seed);
+        trajectory = new Trajectory(seed, runtimeNanos, pathStyle);
+        centreBall();
+    }
+
+    /**
+     * Changes the game settings. Takes effect immediately, call {@link #reset()} to restart the run.
+     * @param ballSpeed Pixels the ball moves along each axis per step.
+     * @param ballRadius Radius of the ball in pixels.
+     * @param runtimeMillis Length of a run in milliseconds.
+     */
+    public void setSettings(int ballSpeed, int ballRadius, long runtimeMillis) {
+        this.ballSpeed = ballSpeed;
+        this.ballRadius = ballRadius;
+        this.runtimeNanos = runtimeMillis * GameClock.NANOS_PER_MILLI;
+        decoys.setTargetSettings(ballRadius, ballSpeed);
+    }
+
+    /**
+     * Sets the seed and style of the ball's path, taking effect when the run is next reset.
+     * @param seed Seed for the path, see {@link Trajectory}.
+     * @param pathStyle Shape of the path.
+     */
+    public void setPath(long seed, Trajectory.Style pathStyle) {
+        this.seed = seed;
+        this.pathStyle = pathStyle;
+    }
+
+    /**
+     * Sets the number of decoy targets the player must avoid, scattering them over the play area.
+     * @param count Number of decoys, 0 for the normal single ball game.
+     */
+    public void setDecoyCount(int count) {
+        decoys.setCount(count);
+    }
+
+    /**
+     * Sets the area the ball moves in.
+     */
+    public void setBounds(double left, double top, double right, double bottom) {
+        areaLeft = left;
+        areaTop = top;
+        areaRight = right;
+        areaBottom = bottom;
+        decoys.setBounds(left, top, right, bottom);
+    }
+
+    /**
+     * Lets an agent move the mouse, overriding any position set by the player. The agent is reset with
+     * the run's seed whenever the run is.
+     * @param agent Agent to ask for the mouse position before each step, null to hand back to the player.
+     */
+    public void setAgent(MouseAgent agent) {
+        this.agent = agent;
+        if (agent != null) agent.reset(seed);
+    }
+
+    /**
+     * Moves the ball off any wall it is caught in, e.g. after the play area shrinks.
+     */
+    public void clampBallToBounds() {
+        if (ballX + ballRadius >= areaRight) ballX = areaRight - ballRadius - RESIZE_MARGIN;
+        if (ballX - ballRadius <= areaLeft) ballX = areaLeft + ballRadius + RESIZE_MARGIN;
+        if (ballY + ballRadius >= areaBottom) ballY = areaBottom - ballRadius - RESIZE_MARGIN;
+        if (ballY - ballRadius <= areaTop) ballY = areaTop + ballRadius + RESIZE_MARGIN;
+        prevBallX = ballX;
+        prevBallY = ballY;
+    }
+
+    /**
+     * Places the ball in the centre of the play area.
+     */
+    public void centreBall() {
+        ballX = prevBallX = (areaLeft + areaRight) / 2;
+        ballY = prevBallY = (areaTop + areaBottom) / 2;
+    }
+
+    /**
+     * Restarts the run, clearing the time and score and starting the path from the beginning. Only
+     * generates a new {@link Trajectory} if the seed, style or run time changed. The ball carries on from
+     * where it is, call {@link #centreBall()} too for the exact path the seed gives.
+     */
+    public void reset() {
+        simTimeNanos = 0;
+        stepAccumulator = 0;
+        waitTillTime = -1;
+        segment = -1;
+        if (!trajectory.matches(seed, runtimeNanos, pathStyle)) {
+            trajectory = new Trajectory(seed, runtimeNanos, pathStyle);
+        }
+        decoys.reseed(seed);
+        score.reset();
+        if (agent != null) agent.reset(seed);
+    }
+
+    /**
+     * Sets the latest mouse position, in the same coordinates as the play area.
+     */
+    public void setMousePosition(double x, double y) {
+        mouseX = x;
+        mouseY = y;
+        mouseOnScreen = true;
+    }
+
+    /**
+     * Marks the mouse as having left the screen.
+     */
+    public void clearMousePosition() {
+        mouseOnScreen = false;
+    }
+
+    /**
+     * Advances the simulation by as many whole steps as the given real time covers, carrying the
+     * remainder over to the next call. If more than MAX_CATCH_UP_STEPS are due only that many are run
+     * and the rest of the time is dropped.
+     * @param elapsedNanos Real time since the last call.
+     * @return Number of steps run.
+     */
+    public int advance(long elapsedNanos) {
+        stepAccumulator += elapsedNanos;
+        int steps = 0;
+        while (stepAccumulator >= STEP_NANOS && steps < MAX_CATCH_UP_STEPS && !isFinished()) {
+            step();
+            stepAccumulator -= STEP_NANOS;
+            steps++;
+        }
+        if (stepAccumulator >= STEP_NANOS) stepAccumulator %= STEP_NANOS;
+        return steps;
+    }
+
+    /**
+     * Advances the simulation by exactly one step.
+     */
+    public void step() {
+        if (agent != null) agent.tick(this);
+
+        prevBallX = ballX;
+        prevBallY = ballY;
+
+        // Score the step against the ball as the player last saw it
+        if (mouseOnScreen) {
+            double dx = mouseX - ballX;
+            double dy = mouseY - ballY;
+            double distance = Math.sqrt(dx * dx + dy * dy);
+            mouseInBall = distance <= ballRadius;
+            score.sample(distance, ballRadius, STEP_NANOS);
+
+            // Touching a decoy while off the highlighted ball is penalised
+            mouseOnDecoy = !mouseInBall && decoys.getCount() > 0 && decoys.hitTest(mouseX, mouseY) >= 0;
+            if (mouseOnDecoy) score.sampleDecoyHit(STEP_NANOS);
+        } else {
+            mouseInBall = false;
+            mouseOnDecoy = false;
+            score.sampleMissing(STEP_NANOS);
+        }
+
+        simTimeNanos += STEP_NANOS;
+
+        // If the simulation time has surpassed the wait till time, start the next segment of the path.
+        if (simTimeNanos >= waitTillTime) {
+            changeDirection();
+            waitTillTime = simTimeNanos + trajectory.getDurationNanos(segment);
+        }
+
+        // If the ball is going out of bounds, stop it!
+        stopBallOOB();
+
+        // Change the balls coordinates according to new values
+        moveBall();
+
+        if (decoys.getCount() > 0) decoys.step(STEP_NANOS);
+    }
+
+    /**
+     * @return Whether the given point is inside the ball.
+     */
+    public boolean isInBall(double x, double y) {
+        double dx = x - ballX;
+        double dy = y - ballY;
+        return dx * dx + dy * dy <= (double) ballRadius * ballRadius;
+    }
+
+    /**
+     * @return Whether the run time has been used up.
+     */
+    public boolean isFinished() {
+        return simTimeNanos >= runtimeNanos;
+    }
+
+    /**
+     * @return X coordinate to draw the ball at, between its last two positions.
+     */
+    public double getRenderX() {
+        return prevBallX + (ballX - prevBallX) * getInterpolation();
+    }
+
+    /**
+     * @return Y coordinate to draw the ball at, between its last two positions.
+     */
+    public double getRenderY() {
+        return prevBallY + (ballY - prevBallY) * getInterpolation();
+    }
+
+    /**
+     * @return Fraction of a step passed since the last step, 0 to 1.
+     */
+    public double getInterpolation() {
+        return stepAccumulator / (double) STEP_NANOS;
+    }
+
+    public double getBallX() {
+        return ballX;
+    }
+
+    public double getBallY() {
+        return ballY;
+    }
+
+    public int getBallRadius() {
+        return ballRadius;
+    }
+
+    public int getBallSpeed() {
+        return ballSpeed;
+    }
+
+    public boolean isMouseOnScreen() {
+        return mouseOnScreen;
+    }
+
+    public double getMouseX() {
+        return mouseX;
+    }
+
+    public double getMouseY() {
+        return mouseY;
+    }
+
+    public boolean isMouseInBall() {
+        return mouseInBall;
+    }
+
+    public boolean isMouseOnDecoy() {
+        return mouseOnDecoy;
+    }
+
+    public TargetField getDecoys() {
+        return decoys;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public Trajectory getTrajectory() {
+        return trajectory;
+    }
+
+    public long getSimTimeNanos() {
+        return simTimeNanos;
+    }
+
+    public long getRuntimeNanos() {
+        return runtimeNanos;
+    }
+
+    public long getTimeOnBallNanos() {
+        return score.getTimeInsideNanos();
+    }
+
+    public double getAreaLeft() {
+        return areaLeft;
+    }
+
+    public double getAreaTop() {
+        return areaTop;
+    }
+
+    public double getAreaRight() {
+        return areaRight;
+    }
+
+    public double getAreaBottom() {
+        return areaBottom;
+    }
+
+    public MouseAgent getAgent() {
+        return agent;
+    }
+
+    public TrackingScore getScore() {
+        return score;
+    }
+
+    /**
+     * Changes the rings time is tracked within, clearing the current score.
+     * @param ringFactors Ring radii as multiples of the ball radius.
+     */
+    public void setScoringRings(double... ringFactors) {
+        score = new TrackingScore(ringFactors);
+    }
+
+    /*
+    Moves on to the next segment of the trajectory, wrapping round if the run outlasts it.
+     */
+    private void changeDirection() {
+        segment = (segment + 1) % trajectory.getSegmentCount();
+        dirX = trajectory.getDirX(segment);
+        dirY = trajectory.getDirY(segment);
+        turnCos = trajectory.getTurnCos(segment);
+        turnSin = trajectory.getTurnSin(segment);
+    }
+
+    /*
+    Moves the ball ballSpeed px along each axis in its direction of travel, then turns the direction for
+    curved paths.
+     */
+    private void moveBall() {
+        ballX += dirX * ballSpeed;
+        ballY += dirY * ballSpeed;
+
+        double x = dirX;
+        dirX = x * turnCos - dirY * turnSin;
+        dirY = x * turnSin + dirY * turnCos;
+    }
+
+    /*
+    Stops the ball going out of bounds. Detects if the ball is outside of the play area and heading further
+    out, if is the direction is changed and the ball is made to travel in the new direction for at least
+    MIN_DIRECT_TIME. A ball already heading back in is left alone, otherwise a direction change at the wall
+    could leave it flipping back and forth there forever.
+     */
+    private void stopBallOOB() {
+        // If the ball has hit a horizontal wall
+        if ((dirX > 0 && ballX + ballRadius >= areaRight) || (dirX < 0 && ballX - ballRadius <= areaLeft)) {
+            dirX = -dirX;
+            waitTillTime += MIN_DIRECT_TIME;
+        }
+
+        // If the ball has hit a vertical wall
+        if ((dirY > 0 && ballY + ballRadius >= areaBottom) || (dirY < 0 && ballY - ballRadius <= areaTop)) {
+            dirY = -dirY;
+            waitTillTime += MIN_DIRECT_TIME;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * Streaming tracking statistics for {@link TraceSimulation}, sampled once per simulation step with the
+ * distance from the mouse to the centre of the ball.
+ *
+ * Keeps time inside the ball, mean, RMS and standard deviation of the distance (using Welford's
+ * algorithm, so it stays accurate over long runs), the largest distance and the time spent within each
+ * of a set of rings. Rings are given as multiples of the ball radius, so they scale with the ball.
+ * Sampling does not allocate.
+ */
+public class TrackingScore {
+    // Constants
+    public static final double[] DEFAULT_RINGS = {0.5, 1.5, 2.0};
+
+    // Properties
+    private final double[] ringFactors;
+    private final long[] ringNanos;
+    private long samples = 0;
+    private double meanError = 0;
+    private double m2 = 0;              // Sum of squared differences from the mean
+    private double maxExcursion = 0;
+    private long timeInsideNanos = 0;
+    private long trackedNanos = 0;      // Time the mouse was on screen
+    private long totalNanos = 0;
+    private long decoyNanos = 0;        // Time spent on a decoy target instead of the ball
+
+    /**
+     * Creates a score using DEFAULT_RINGS.
+     */
+    public TrackingScore() {
+        this(DEFAULT_RINGS);
+    }
+
+    /**
+     * @param ringFactors Ring radii as multiples of the ball radius.
+     */
+    public TrackingScore(double... ringFactors) {
+        this.ringFactors = ringFactors.clone();
+        ringNanos = new long[ringFactors.length];
+    }
+
+    /**
+     * Records a step with the mouse on screen.
+     * @param distance Distance from the mouse to the centre of the ball.
+     * @param ballRadius Radius of the ball.
+     * @param stepNanos Length of the step.
+     */
+    public void sample(double distance, double ballRadius, long stepNanos) {
+        samples++;
+        double delta = distance - meanError;
+        meanError += delta / samples;
+        m2 += delta * (distance - meanError);
+        if (distance > maxExcursion) maxExcursion = distance;
+
+        if (distance <= ballRadius) timeInsideNanos += stepNanos;
+        for (int i = 0; i < ringFactors.length; i++) {
+            if (distance <= ringFactors[i] * ballRadius) ringNanos[i] += stepNanos;
+        }
+        trackedNanos += stepNanos;
+        totalNanos += stepNanos;
+    }
+
+    /**
+     * Records a step with the mouse off screen, which only counts towards the total time.
+     * @param stepNanos Length of the step.
+     */
+    public void sampleMissing(long stepNanos) {
+        totalNanos += stepNanos;
+    }
+
+    /**
+     * Records a step spent on a decoy target, in the multi-target mode.
+     * @param stepNanos Length of the step.
+     */
+    public void sampleDecoyHit(long stepNanos) {
+        decoyNanos += stepNanos;
+    }
+
+    /**
+     * Clears all statistics.
+     */
+    public void reset() {
+        samples = 0;
+        meanError = 0;
+        m2 = 0;
+        maxExcursion = 0;
+        timeInsideNanos = 0;
+        trackedNanos = 0;
+        totalNanos = 0;
+        decoyNanos = 0;
+        for (int i = 0; i < ringNanos.length; i++) ringNanos[i] = 0;
+    }
+
+    public long getTimeInsideNanos() {
+        return timeInsideNanos;
+    }
+
+    public long getDecoyNanos() {
+        return decoyNanos;
+    }
+
+    public long getTrackedNanos() {
+        return trackedNanos;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return Mean distance from the centre of the ball, in px.
+     */
+    public double getMeanError() {
+        return meanError;
+    }
+
+    /**
+     * @return Root mean square distance from the centre of the ball, in px.
+     */
+    public double getRmsError() {
+        return samples == 0 ? 0 : Math.sqrt(m2 / samples + meanError * meanError);
+    }
+
+    /**
+     * @return Standard deviation of the distance from the centre of the ball, in px.
+     */
+    public double getErrorStdDev() {
+        return samples == 0 ? 0 : Math.sqrt(m2 / samples);
+    }
+
+    /**
+     * @return Largest distance from the centre of the ball, in px.
+     */
+    public double getMaxExcursion() {
+        return maxExcursion;
+    }
+
+    public int getRingCount() {
+        return ringFactors.length;
+    }
+
+    /**
+     * @return Radius of the ring as a multiple of the ball radius.
+     */
+    public double getRingFactor(int ring) {
+        return ringFactors[ring];
+    }
+
+    /**
+     * @return Time spent within the ring.
+     */
+    public long getRingNanos(int ring) {
+        return ringNanos[ring];
+    }
+}
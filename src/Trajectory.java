@@ -0,0 +1,115 @@
+import java.util.Random;
+
+/**
+ * The schedule of direction changes for the ball in {@link TraceSimulation}, generated up front from a
+ * seed so that the same seed, settings and play area always give the same path. Players can share a
+ * seed and race the exact same ball.
+ *
+ * The path is a list of segments, each with a duration and a starting direction, held in primitive
+ * arrays. In the STRAIGHT style the ball moves diagonally as it always has. In the CURVED style it
+ * heads off at any angle and turns at a constant rate through the segment, given as the cos and sin of
+ * the turn per step so the simulation can rotate its direction without any trigonometry.
+ *
+ * There are enough segments to cover the run time even if every segment is as short as possible, up to
+ * MAX_SEGMENTS (over an hour), after which the path repeats.
+ */
+public class Trajectory {
+    // Constants
+    public static final double MAX_TURN_PER_STEP = Math.toRadians(3);
+    public static final int MAX_SEGMENTS = 8192;
+    private static final double DIAGONAL_SPEED = Math.sqrt(2);  // Speed of a diagonal step, per unit of ball speed
+
+    /**
+     * Shape of the path between direction changes.
+     */
+    public enum Style {
+        STRAIGHT,
+        CURVED
+    }
+
+    // Properties
+    private final long seed;
+    private final long runtimeNanos;
+    private final Style style;
+    private final int segmentCount;
+    private final long[] durationNanos;
+    private final double[] dirX, dirY;          // Direction at the start of each segment, per unit of ball speed
+    private final double[] turnCos, turnSin;    // Rotation applied to the direction every step
+
+    /**
+     * Generates the path.
+     * @param seed Seed the whole path is generated from.
+     * @param runtimeNanos Length of the run the path must cover.
+     * @param style Shape of the path.
+     */
+    public Trajectory(long seed, long runtimeNanos, Style style) {
+        this.seed = seed;
+        this.runtimeNanos = runtimeNanos;
+        this.style = style;
+        segmentCount = (int) Math.min(runtimeNanos / TraceSimulation.MIN_DIRECT_TIME + 2, MAX_SEGMENTS);
+        durationNanos = new long[segmentCount];
+        dirX = new double[segmentCount];
+        dirY = new double[segmentCount];
+        turnCos = new double[segmentCount];
+        turnSin = new double[segmentCount];
+
+        Random random = new Random(seed);
+        for (int i = 0; i < segmentCount; i++) {
+            durationNanos[i] = random.nextInt(TraceSimulation.MAX_DIRECT_TIME - TraceSimulation.MIN_DIRECT_TIME)
+                    + TraceSimulation.MIN_DIRECT_TIME;
+            if (style == Style.STRAIGHT) {
+                dirX[i] = random.nextBoolean() ? 1 : -1;
+                dirY[i] = random.nextBoolean() ? 1 : -1;
+                turnCos[i] = 1;
+                turnSin[i] = 0;
+            } else {
+                // Same speed as a diagonal step, in any direction
+                double heading = random.nextDouble() * 2 * Math.PI;
+                double turn = (random.nextDouble() * 2 - 1) * MAX_TURN_PER_STEP;
+                dirX[i] = Math.cos(heading) * DIAGONAL_SPEED;
+                dirY[i] = Math.sin(heading) * DIAGONAL_SPEED;
+                turnCos[i] = Math.cos(turn);
+                turnSin[i] = Math.sin(turn);
+            }
+        }
+    }
+
+    /**
+     * @return Whether this path was generated from the given parameters, so doesn't need generating again.
+     */
+    public boolean matches(long seed, long runtimeNanos, Style style) {
+        return this.seed == seed && this.runtimeNanos == runtimeNanos && this.style == style;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public Style getStyle() {
+        return style;
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    public long getDurationNanos(int segment) {
+        return durationNanos[segment];
+    }
+
+    public double getDirX(int segment) {
+        return dirX[segment];
+    }
+
+    public double getDirY(int segment) {
+        return dirY[segment];
+    }
+
+    public double getTurnCos(int segment) {
+        return turnCos[segment];
+    }
+
+    public double getTurnSin(int segment) {
+        return turnSin[segment];
+    }
+}
@@ -0,0 +1,120 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link QuantileSketch}, comparing its quantiles with exact ones from the sorted values.
+ */
+class QuantileSketchTest {
+    // Constants
+    private static final double[] QUANTILES = {0, 0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999, 1};
+    private static final int SUB_BUCKETS = 64;
+
+    @Test
+    void quantilesWithinStatedError() {
+        SplittableRandom random = new SplittableRandom(11);
+        // Reaction times in ns, log-normal around 250 ms
+        long[] reactions = new long[100_000];
+        for (int i = 0; i < reactions.length; i++) {
+            reactions[i] = (long) (250e6 * Math.exp(random.nextGaussian() * 0.3));
+        }
+        assertQuantiles(reactions);
+
+        // Small values, which have exact buckets, and values across every power of two
+        long[] small = new long[10_000];
+        long[] wide = new long[10_000];
+        for (int i = 0; i < small.length; i++) {
+            small[i] = random.nextInt(200);
+            wide[i] = random.nextLong(1L << random.nextInt(1, 63));
+        }
+        assertQuantiles(small);
+        assertQuantiles(wide);
+        assertQuantiles(new long[]{Long.MAX_VALUE, Long.MAX_VALUE - 1, 1L << 62});
+    }
+
+    @Test
+    void mergeMatchesRecordingEverything() {
+        SplittableRandom random = new SplittableRandom(12);
+        QuantileSketch all = new QuantileSketch();
+        QuantileSketch merged = new QuantileSketch();
+        for (int s = 0; s < 5; s++) {
+            QuantileSketch session = new QuantileSketch();
+            for (int i = 0; i < 1000; i++) {
+                long value = random.nextLong(1_000_000_000L >> s);
+                session.record(value);
+                all.record(value);
+            }
+            merged.merge(session);
+        }
+        assertSameSketch(all, merged);
+    }
+
+    @Test
+    void writeAndReadRoundTrips() throws IOException {
+        SplittableRandom random = new SplittableRandom(13);
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < 10_000; i++) sketch.record(random.nextLong(5_000_000_000L));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.writeTo(new DataOutputStream(bytes));
+        QuantileSketch read = QuantileSketch.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertSameSketch(sketch, read);
+    }
+
+    @Test
+    void emptyAndResetSketches() {
+        QuantileSketch sketch = new QuantileSketch();
+        assertEquals(0, sketch.getQuantile(0.5));
+        assertEquals(0, sketch.getMin());
+        sketch.record(-10);
+        assertEquals(0, sketch.getMax());
+        sketch.record(1000);
+        sketch.reset();
+        assertEquals(0, sketch.getCount());
+        assertEquals(0, sketch.getQuantile(0.99));
+        sketch.record(70);
+        assertEquals(70, sketch.getMin());
+        assertEquals(70, sketch.getQuantile(0.5));
+
+        assertEquals(0, QuantileSketch.EMPTY.getCount());
+        assertThrows(UnsupportedOperationException.class, () -> QuantileSketch.EMPTY.record(1));
+        assertThrows(UnsupportedOperationException.class, () -> QuantileSketch.EMPTY.merge(sketch));
+        assertThrows(UnsupportedOperationException.class, QuantileSketch.EMPTY::reset);
+    }
+
+    /*
+    Records the values and checks every quantile is within 1 part in 2 * SUB_BUCKETS of the exact one.
+     */
+    private static void assertQuantiles(long[] values) {
+        QuantileSketch sketch = new QuantileSketch();
+        for (long value : values) sketch.record(value);
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        assertEquals(values.length, sketch.getCount());
+        assertEquals(sorted[0], sketch.getMin());
+        assertEquals(sorted[sorted.length - 1], sketch.getMax());
+        for (double quantile : QUANTILES) {
+            long rank = Math.max(1, (long) Math.ceil(quantile * sorted.length));
+            long exact = sorted[(int) rank - 1];
+            long estimate = sketch.getQuantile(quantile);
+            // Bucket middles round down, so allow one more
+            assertEquals(exact, estimate, exact / (2.0 * SUB_BUCKETS) + 1, "Quantile " + quantile);
+        }
+    }
+
+    private static void assertSameSketch(QuantileSketch expected, QuantileSketch actual) {
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getMin(), actual.getMin());
+        assertEquals(expected.getMax(), actual.getMax());
+        for (double quantile : QUANTILES) assertEquals(expected.getQuantile(quantile), actual.getQuantile(quantile));
+    }
+}
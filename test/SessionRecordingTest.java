@@ -0,0 +1,148 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that recordings written by {@link SessionRecorder} read back the same with {@link SessionReplay}.
+ */
+class SessionRecordingTest {
+    // Constants
+    private static final long RUNTIME_MILLIS = 10_000;
+    private static final int FRAME_RATE = 60;
+    private static final int BALL_SPEED = 3;
+    // Positions are stored to the nearest 1/POSITION_SCALE px, from floats
+    private static final double POSITION_ERROR = 0.5 / SessionRecorder.POSITION_SCALE + 1e-3;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordingRoundTrips() throws IOException {
+        SessionRecorder recorder = new SessionRecorder(RUNTIME_MILLIS, FRAME_RATE);
+        TraceSimulation simulation = new TraceSimulation(42);
+        simulation.setSettings(BALL_SPEED, 40, RUNTIME_MILLIS);
+        simulation.setBounds(200, 0, 800, 650);
+        simulation.setAgent(new LaggedPursuitAgent());
+        simulation.reset();
+        simulation.centreBall();
+
+        // Pulses with jitter, starting far from zero like System.nanoTime(), with the mouse leaving for a while
+        SplittableRandom random = new SplittableRandom(3);
+        int frames = (int) (RUNTIME_MILLIS * FRAME_RATE / 1000);
+        long[] pulses = new long[frames];
+        double[] expected = new double[frames * 4];
+        boolean[] onScreen = new boolean[frames];
+        boolean[] inBall = new boolean[frames];
+        long pulse = 987_654_321_012_345L;
+        for (int i = 0; i < frames; i++) {
+            simulation.step();
+            pulse += TraceSimulation.STEP_NANOS + random.nextInt(-2_000_000, 2_000_000);
+            pulses[i] = pulse;
+            onScreen[i] = i < 200 || i > 260;
+            inBall[i] = simulation.isMouseInBall();
+            expected[i * 4] = simulation.getBallX();
+            expected[i * 4 + 1] = simulation.getBallY();
+            expected[i * 4 + 2] = onScreen[i] ? simulation.getMouseX() : -1;
+            expected[i * 4 + 3] = onScreen[i] ? simulation.getMouseY() : -1;
+            recorder.record(pulse, expected[i * 4], expected[i * 4 + 1], simulation.getBallRadius(),
+                    expected[i * 4 + 2], expected[i * 4 + 3], onScreen[i], inBall[i]);
+        }
+
+        Path file = directory.resolve("run.msr");
+        recorder.write(file, RUNTIME_MILLIS, BALL_SPEED);
+        SessionReplay replay = SessionReplay.read(file);
+
+        assertEquals(RUNTIME_MILLIS, replay.getRuntimeMillis());
+        assertEquals(BALL_SPEED, replay.getBallSpeed());
+        assertEquals(frames, replay.getFrameCount());
+        long onBall = 0;
+        for (int i = 0; i < frames; i++) {
+            assertEquals(pulses[i] - pulses[0], replay.getTimeNanos(i));
+            assertEquals(expected[i * 4], replay.getBallX(i), POSITION_ERROR);
+            assertEquals(expected[i * 4 + 1], replay.getBallY(i), POSITION_ERROR);
+            assertEquals(expected[i * 4 + 2], replay.getMouseX(i), POSITION_ERROR);
+            assertEquals(expected[i * 4 + 3], replay.getMouseY(i), POSITION_ERROR);
+            assertEquals(40, replay.getBallRadius(i));
+            assertEquals(onScreen[i], replay.isMouseOnScreen(i));
+            assertEquals(inBall[i], replay.isInBall(i));
+            if (i > 0 && inBall[i - 1]) onBall += pulses[i] - pulses[i - 1];
+            assertEquals(onBall, replay.getTimeOnBallNanos(i));
+        }
+
+        // Encoding again gives the same file
+        ByteBuffer encoded = recorder.encode(RUNTIME_MILLIS, BALL_SPEED);
+        byte[] bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+        assertArrayEquals(Files.readAllBytes(file), bytes);
+    }
+
+    @Test
+    void fullRecorderDropsFrames() throws IOException {
+        SessionRecorder recorder = new SessionRecorder(1000, FRAME_RATE);
+        // A second's worth plus a second to spare fits
+        int capacity = 2 * FRAME_RATE;
+        for (int i = 0; i < capacity + 5; i++) recorder.record(i, i, i, 40, i, i, true, false);
+        assertEquals(capacity, recorder.getFrameCount());
+        assertEquals(5, recorder.getDroppedFrames());
+
+        Path file = directory.resolve("full.msr");
+        recorder.write(file, 1000, BALL_SPEED);
+        assertEquals(capacity, SessionReplay.read(file).getFrameCount());
+
+        recorder.clear();
+        assertEquals(0, recorder.getFrameCount());
+        assertEquals(0, recorder.getDroppedFrames());
+    }
+
+    @Test
+    void emptyRecordingRoundTrips() throws IOException {
+        Path file = directory.resolve("empty.msr");
+        new SessionRecorder(RUNTIME_MILLIS, FRAME_RATE).write(file, RUNTIME_MILLIS, BALL_SPEED);
+        SessionReplay replay = SessionReplay.read(file);
+        assertEquals(0, replay.getFrameCount());
+        assertTrue(replay.isFinished(0));
+    }
+
+    @Test
+    void badFilesAreRejected() throws IOException {
+        SessionRecorder recorder = new SessionRecorder(RUNTIME_MILLIS, FRAME_RATE);
+        for (int i = 0; i < 100; i++) recorder.record(i * TraceSimulation.STEP_NANOS, i, i, 40, i, i, true, true);
+        Path file = directory.resolve("good.msr");
+        recorder.write(file, RUNTIME_MILLIS, BALL_SPEED);
+        byte[] good = Files.readAllBytes(file);
+
+        // Cut off part way through the frames
+        assertRejected(Arrays.copyOf(good, good.length - 10));
+        // Not a recording
+        byte[] wrongMagic = good.clone();
+        wrongMagic[0] ^= 1;
+        assertRejected(wrongMagic);
+        // Unknown version
+        byte[] wrongVersion = good.clone();
+        wrongVersion[4] = 99;
+        assertRejected(wrongVersion);
+        // Frame counts that can't fit in the file
+        int countOffset = 4 + 1 + 8 + 4;
+        for (int count : new int[]{-5, 10_000, Integer.MAX_VALUE}) {
+            byte[] badCount = good.clone();
+            ByteBuffer.wrap(badCount).putInt(countOffset, count);
+            assertRejected(badCount);
+        }
+    }
+
+    /*
+    Writes the contents to a file and checks reading it fails cleanly.
+     */
+    private void assertRejected(byte[] contents) throws IOException {
+        Path file = Files.write(directory.resolve("bad.msr"), contents);
+        assertThrows(IOException.class, () -> SessionReplay.read(file));
+    }
+}
@@ -0,0 +1,120 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link TargetField}, checking the grid against a brute force search of every target.
+ */
+class TargetFieldTest {
+    // Constants
+    private static final double LEFT = 200, TOP = 0, RIGHT = 800, BOTTOM = 650;
+    private static final long STEP_NANOS = TraceSimulation.STEP_NANOS;
+
+    @ParameterizedTest
+    @CsvSource({
+            "1000, 40, 3",
+            "5000, 10, 3",
+            "200, 2, 12",
+            "50, 200, 30"
+    })
+    void hitTestMatchesBruteForce(int count, double radius, double speed) {
+        TargetField field = createField(count, radius, speed, 42);
+        SplittableRandom random = new SplittableRandom(7);
+        for (int step = 0; step < 300; step++) {
+            field.step(STEP_NANOS);
+            // Points over the play area and a radius past each wall, where targets overshooting can be hit
+            for (int p = 0; p < 200; p++) {
+                double px = LEFT - radius + random.nextDouble() * (RIGHT - LEFT + 2 * radius);
+                double py = TOP - radius + random.nextDouble() * (BOTTOM - TOP + 2 * radius);
+                int hit = field.hitTest(px, py);
+                if (bruteForceHit(field, px, py)) {
+                    assertTrue(hit >= 0, "Missed a target at " + px + ", " + py);
+                    assertTrue(contains(field, hit, px, py), "Target " + hit + " doesn't contain " + px + ", " + py);
+                } else {
+                    assertEquals(-1, hit, "Hit a target at " + px + ", " + py);
+                }
+            }
+        }
+    }
+
+    @Test
+    void hitTestFindsEveryTarget() {
+        TargetField field = createField(1000, 20, 3, 3);
+        for (int step = 0; step < 100; step++) field.step(STEP_NANOS);
+        for (int i = 0; i < field.getCount(); i++) {
+            int hit = field.hitTest(field.getX(i), field.getY(i));
+            assertTrue(hit >= 0 && contains(field, hit, field.getX(i), field.getY(i)));
+        }
+    }
+
+    @Test
+    void targetsStayInPlayArea() {
+        double radius = 40, speed = 3;
+        TargetField field = createField(1000, radius, speed, 5);
+        for (int step = 0; step < 3000; step++) {
+            field.step(STEP_NANOS);
+            for (int i = 0; i < field.getCount(); i++) {
+                // A target may overshoot a wall by a step before it turns back
+                assertTrue(field.getX(i) - radius >= LEFT - 2 * speed && field.getX(i) + radius <= RIGHT + 2 * speed);
+                assertTrue(field.getY(i) - radius >= TOP - 2 * speed && field.getY(i) + radius <= BOTTOM + 2 * speed);
+            }
+        }
+    }
+
+    @Test
+    void sameSeedGivesSameField() {
+        TargetField first = createField(500, 40, 3, 9);
+        TargetField second = createField(500, 40, 3, 9);
+        for (int step = 0; step < 600; step++) {
+            first.step(STEP_NANOS);
+            second.step(STEP_NANOS);
+        }
+        for (int i = 0; i < first.getCount(); i++) {
+            assertEquals(first.getX(i), second.getX(i));
+            assertEquals(first.getY(i), second.getY(i));
+        }
+
+        // Reseeding restarts the same sequence
+        double x = first.getX(0);
+        first.reseed(9);
+        first.setCount(500);
+        TargetField fresh = createField(500, 40, 3, 9);
+        assertEquals(fresh.getX(0), first.getX(0));
+        assertNotEquals(x, first.getX(0));
+    }
+
+    @Test
+    void countOutsideCapacityThrows() {
+        TargetField field = new TargetField(10, 1);
+        assertThrows(IllegalArgumentException.class, () -> field.setCount(11));
+        assertThrows(IllegalArgumentException.class, () -> field.setCount(-1));
+    }
+
+    /*
+    A field of moving targets over the default window's play area.
+     */
+    private static TargetField createField(int count, double radius, double speed, long seed) {
+        TargetField field = new TargetField(count, seed);
+        field.setBounds(LEFT, TOP, RIGHT, BOTTOM);
+        field.setTargetSettings(radius, speed);
+        field.setCount(count);
+        return field;
+    }
+
+    private static boolean bruteForceHit(TargetField field, double px, double py) {
+        for (int i = 0; i < field.getCount(); i++) {
+            if (contains(field, i, px, py)) return true;
+        }
+        return false;
+    }
+
+    private static boolean contains(TargetField field, int target, double px, double py) {
+        double dx = px - field.getX(target);
+        double dy = py - field.getY(target);
+        return dx * dx + dy * dy <= field.getRadius() * field.getRadius();
+    }
+}
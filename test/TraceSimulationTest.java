@@ -0,0 +1,122 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link TraceSimulation}, run headless with an agent moving the mouse.
+ */
+class TraceSimulationTest {
+    // Constants
+    private static final int BALL_SPEED = 3;
+    private static final int BALL_RADIUS = 40;
+    private static final long RUNTIME_MILLIS = 30_000;
+    private static final double LEFT = 200, TOP = 0, RIGHT = 800, BOTTOM = 650;
+
+    @ParameterizedTest
+    @EnumSource(Trajectory.Style.class)
+    void sameSeedGivesSameRun(Trajectory.Style style) {
+        TraceSimulation first = createSimulation(42, style);
+        TraceSimulation second = createSimulation(42, style);
+        while (!first.isFinished()) {
+            first.step();
+            second.step();
+            assertEquals(first.getBallX(), second.getBallX());
+            assertEquals(first.getBallY(), second.getBallY());
+            assertEquals(first.getMouseX(), second.getMouseX());
+            assertEquals(first.getMouseY(), second.getMouseY());
+        }
+        assertTrue(second.isFinished());
+
+        TrackingScore a = first.getScore();
+        TrackingScore b = second.getScore();
+        assertEquals(a.getTimeInsideNanos(), b.getTimeInsideNanos());
+        assertEquals(a.getRmsError(), b.getRmsError());
+        assertEquals(a.getMaxExcursion(), b.getMaxExcursion());
+    }
+
+    @Test
+    void differentSeedGivesDifferentRun() {
+        TraceSimulation first = createSimulation(42, Trajectory.Style.STRAIGHT);
+        TraceSimulation second = createSimulation(43, Trajectory.Style.STRAIGHT);
+        for (int i = 0; i < 600; i++) {
+            first.step();
+            second.step();
+        }
+        assertFalse(first.getBallX() == second.getBallX() && first.getBallY() == second.getBallY());
+    }
+
+    @Test
+    void resetRepeatsRun() {
+        TraceSimulation simulation = createSimulation(7, Trajectory.Style.CURVED);
+        double[] path = runPath(simulation);
+        simulation.reset();
+        simulation.centreBall();
+        assertArrayEquals(path, runPath(simulation));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Trajectory.Style.class)
+    void ballStaysInPlayArea(Trajectory.Style style) {
+        // The ball may overshoot a wall by a step before it turns back
+        double slack = 2 * BALL_SPEED * Math.sqrt(2);
+        for (long seed = 0; seed < 20; seed++) {
+            TraceSimulation simulation = createSimulation(seed, style);
+            while (!simulation.isFinished()) {
+                simulation.step();
+                double x = simulation.getBallX();
+                double y = simulation.getBallY();
+                assertTrue(x - BALL_RADIUS >= LEFT - slack && x + BALL_RADIUS <= RIGHT + slack, "x " + x);
+                assertTrue(y - BALL_RADIUS >= TOP - slack && y + BALL_RADIUS <= BOTTOM + slack, "y " + y);
+            }
+        }
+    }
+
+    @Test
+    void advanceRunsWholeSteps() {
+        TraceSimulation simulation = createSimulation(1, Trajectory.Style.STRAIGHT);
+        long half = TraceSimulation.STEP_NANOS / 2;
+        assertEquals(3, simulation.advance(3 * TraceSimulation.STEP_NANOS + half));
+        assertEquals(0.5, simulation.getInterpolation(), 1e-6);
+        assertEquals(1, simulation.advance(half));
+        assertEquals(4 * TraceSimulation.STEP_NANOS, simulation.getSimTimeNanos());
+    }
+
+    @Test
+    void advanceStopsAtEndOfRun() {
+        TraceSimulation simulation = createSimulation(1, Trajectory.Style.STRAIGHT);
+        while (!simulation.isFinished()) simulation.advance(TraceSimulation.STEP_NANOS);
+        assertEquals(0, simulation.advance(TraceSimulation.STEP_NANOS));
+        assertTrue(simulation.getSimTimeNanos() >= simulation.getRuntimeNanos());
+        assertEquals(simulation.getSimTimeNanos(), simulation.getScore().getTotalNanos());
+    }
+
+    /*
+    A simulation with the default settings and window size, with the mouse moved by a lagged pursuit agent.
+     */
+    private static TraceSimulation createSimulation(long seed, Trajectory.Style style) {
+        TraceSimulation simulation = new TraceSimulation(seed);
+        simulation.setSettings(BALL_SPEED, BALL_RADIUS, RUNTIME_MILLIS);
+        simulation.setBounds(LEFT, TOP, RIGHT, BOTTOM);
+        simulation.setPath(seed, style);
+        simulation.setAgent(new LaggedPursuitAgent());
+        simulation.reset();
+        simulation.centreBall();
+        return simulation;
+    }
+
+    /*
+    Steps the simulation to the end of the run, returning the ball position after every step.
+     */
+    private static double[] runPath(TraceSimulation simulation) {
+        double[] path = new double[(int) (simulation.getRuntimeNanos() / TraceSimulation.STEP_NANOS + 1) * 2];
+        int i = 0;
+        while (!simulation.isFinished()) {
+            simulation.step();
+            path[i++] = simulation.getBallX();
+            path[i++] = simulation.getBallY();
+        }
+        return path;
+    }
+}
@@ -0,0 +1,88 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link TrackingScore}, comparing the streaming statistics with ones computed directly.
+ */
+class TrackingScoreTest {
+    // Constants
+    private static final long STEP_NANOS = TraceSimulation.STEP_NANOS;
+    private static final double RADIUS = 40;
+
+    @Test
+    void matchesDirectComputation() {
+        SplittableRandom random = new SplittableRandom(1);
+        double[] distances = new double[100_000];
+        for (int i = 0; i < distances.length; i++) distances[i] = Math.abs(random.nextGaussian()) * RADIUS;
+
+        TrackingScore score = new TrackingScore();
+        for (double distance : distances) score.sample(distance, RADIUS, STEP_NANOS);
+
+        double sum = 0, sumSquares = 0, max = 0;
+        long inside = 0;
+        long[] rings = new long[TrackingScore.DEFAULT_RINGS.length];
+        for (double distance : distances) {
+            sum += distance;
+            sumSquares += distance * distance;
+            max = Math.max(max, distance);
+            if (distance <= RADIUS) inside++;
+            for (int r = 0; r < rings.length; r++) {
+                if (distance <= TrackingScore.DEFAULT_RINGS[r] * RADIUS) rings[r]++;
+            }
+        }
+        double mean = sum / distances.length;
+        double variance = 0;
+        for (double distance : distances) variance += (distance - mean) * (distance - mean);
+        variance /= distances.length;
+
+        assertEquals(mean, score.getMeanError(), 1e-9);
+        assertEquals(Math.sqrt(sumSquares / distances.length), score.getRmsError(), 1e-9);
+        assertEquals(Math.sqrt(variance), score.getErrorStdDev(), 1e-9);
+        assertEquals(max, score.getMaxExcursion());
+        assertEquals(inside * STEP_NANOS, score.getTimeInsideNanos());
+        for (int r = 0; r < rings.length; r++) assertEquals(rings[r] * STEP_NANOS, score.getRingNanos(r));
+        assertEquals(distances.length * STEP_NANOS, score.getTrackedNanos());
+    }
+
+    @Test
+    void stableForLargeOffset() {
+        // A naive sum of squares loses all precision here, Welford's algorithm shouldn't
+        TrackingScore score = new TrackingScore();
+        for (int i = 0; i < 1_000_000; i++) score.sample(1e9 + (i % 2 == 0 ? 1 : -1), RADIUS, STEP_NANOS);
+        assertEquals(1e9, score.getMeanError(), 1e-3);
+        assertEquals(1, score.getErrorStdDev(), 1e-6);
+    }
+
+    @Test
+    void missingAndDecoyStepsOnlyCountTime() {
+        TrackingScore score = new TrackingScore();
+        score.sample(10, RADIUS, STEP_NANOS);
+        score.sampleMissing(STEP_NANOS);
+        score.sampleDecoyHit(STEP_NANOS);
+        assertEquals(10, score.getMeanError());
+        assertEquals(0, score.getErrorStdDev());
+        assertEquals(STEP_NANOS, score.getTrackedNanos());
+        assertEquals(2 * STEP_NANOS, score.getTotalNanos());
+        assertEquals(STEP_NANOS, score.getDecoyNanos());
+    }
+
+    @Test
+    void resetClearsEverything() {
+        TrackingScore score = new TrackingScore(1, 3);
+        score.sample(50, RADIUS, STEP_NANOS);
+        score.sampleMissing(STEP_NANOS);
+        score.sampleDecoyHit(STEP_NANOS);
+        score.reset();
+        assertEquals(0, score.getMeanError());
+        assertEquals(0, score.getRmsError());
+        assertEquals(0, score.getMaxExcursion());
+        assertEquals(0, score.getTotalNanos());
+        assertEquals(0, score.getDecoyNanos());
+        assertEquals(0, score.getRingNanos(1));
+        assertEquals(2, score.getRingCount());
+        assertEquals(3, score.getRingFactor(1));
+    }
+}
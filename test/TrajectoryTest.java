@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link Trajectory}.
+ */
+class TrajectoryTest {
+    // Constants
+    private static final long RUNTIME_NANOS = 30 * GameClock.NANOS_PER_SECOND;
+
+    @ParameterizedTest
+    @EnumSource(Trajectory.Style.class)
+    void sameSeedGivesSamePath(Trajectory.Style style) {
+        Trajectory first = new Trajectory(42, RUNTIME_NANOS, style);
+        Trajectory second = new Trajectory(42, RUNTIME_NANOS, style);
+        assertEquals(first.getSegmentCount(), second.getSegmentCount());
+        for (int i = 0; i < first.getSegmentCount(); i++) {
+            assertEquals(first.getDurationNanos(i), second.getDurationNanos(i));
+            assertEquals(first.getDirX(i), second.getDirX(i));
+            assertEquals(first.getDirY(i), second.getDirY(i));
+            assertEquals(first.getTurnCos(i), second.getTurnCos(i));
+            assertEquals(first.getTurnSin(i), second.getTurnSin(i));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(Trajectory.Style.class)
+    void differentSeedGivesDifferentPath(Trajectory.Style style) {
+        Trajectory first = new Trajectory(42, RUNTIME_NANOS, style);
+        Trajectory second = new Trajectory(43, RUNTIME_NANOS, style);
+        boolean differs = false;
+        for (int i = 0; i < first.getSegmentCount() && !differs; i++) {
+            differs = first.getDurationNanos(i) != second.getDurationNanos(i) || first.getDirX(i) != second.getDirX(i);
+        }
+        assertTrue(differs);
+    }
+
+    @ParameterizedTest
+    @EnumSource(Trajectory.Style.class)
+    void segmentsCoverRunAndStayInRange(Trajectory.Style style) {
+        Trajectory trajectory = new Trajectory(7, RUNTIME_NANOS, style);
+        // Enough segments to cover the run even if every one is as short as possible
+        assertTrue((long) trajectory.getSegmentCount() * TraceSimulation.MIN_DIRECT_TIME >= RUNTIME_NANOS);
+        for (int i = 0; i < trajectory.getSegmentCount(); i++) {
+            assertTrue(trajectory.getDurationNanos(i) >= TraceSimulation.MIN_DIRECT_TIME);
+            assertTrue(trajectory.getDurationNanos(i) < TraceSimulation.MAX_DIRECT_TIME);
+            // Every direction moves at the speed of a diagonal step
+            double speed = Math.hypot(trajectory.getDirX(i), trajectory.getDirY(i));
+            assertEquals(Math.sqrt(2), speed, 1e-12);
+            assertEquals(1, Math.hypot(trajectory.getTurnCos(i), trajectory.getTurnSin(i)), 1e-12);
+            assertTrue(Math.abs(Math.atan2(trajectory.getTurnSin(i), trajectory.getTurnCos(i)))
+                    <= Trajectory.MAX_TURN_PER_STEP + 1e-12);
+            if (style == Trajectory.Style.STRAIGHT) {
+                assertEquals(1, Math.abs(trajectory.getDirX(i)));
+                assertEquals(1, Math.abs(trajectory.getDirY(i)));
+                assertEquals(0, trajectory.getTurnSin(i));
+            }
+        }
+    }
+
+    @Test
+    void segmentCountIsCapped() {
+        Trajectory trajectory = new Trajectory(1, Long.MAX_VALUE / 2, Trajectory.Style.STRAIGHT);
+        assertEquals(Trajectory.MAX_SEGMENTS, trajectory.getSegmentCount());
+    }
+
+    @Test
+    void matchesOnlyItsOwnParameters() {
+        Trajectory trajectory = new Trajectory(5, RUNTIME_NANOS, Trajectory.Style.CURVED);
+        assertTrue(trajectory.matches(5, RUNTIME_NANOS, Trajectory.Style.CURVED));
+        assertFalse(trajectory.matches(6, RUNTIME_NANOS, Trajectory.Style.CURVED));
+        assertFalse(trajectory.matches(5, RUNTIME_NANOS + 1, Trajectory.Style.CURVED));
+        assertFalse(trajectory.matches(5, RUNTIME_NANOS, Trajectory.Style.STRAIGHT));
+    }
+}